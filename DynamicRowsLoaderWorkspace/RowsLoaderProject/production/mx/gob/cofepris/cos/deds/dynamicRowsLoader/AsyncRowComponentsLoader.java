@@ -0,0 +1,133 @@
+package mx.gob.cofepris.cos.deds.dynamicRowsLoader;
+
+import java.awt.Component;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntUnaryOperator;
+import javax.swing.SwingUtilities;
+
+
+class AsyncRowComponentsLoader {
+	private RowComponentCache rowComponentCache;
+	private ResizableViewPortScroll resizableViewPortScroll;
+	private List<LoadedRow<?>> loadedRows = new ArrayList<>();
+	private boolean isFlushScheduled = false;
+	private Map<Component, Component> resolvedPlaceholdersMap = new WeakHashMap<>();
+	private Map<Component, Integer> loadingPlaceholderRowsMap = new WeakHashMap<>();
+
+
+	AsyncRowComponentsLoader(RowComponentCache rowComponentCache, ResizableViewPortScroll resizableViewPortScroll) {
+		this.rowComponentCache = rowComponentCache;
+		this.resizableViewPortScroll = resizableViewPortScroll;
+	}
+
+
+	/*
+	 * Must be called once the placeholder is cached, so its replacement always finds it unless
+	 * the row was evicted or cleared meanwhile; in that case the loaded information is dropped.
+	 * The row of the placeholder is looked up when it is replaced, since the rows can be 
+	 * rearranged while the information is loading.
+	 */
+	<T> void loadRowData(AsyncToDisplayComponentRenderer<T> renderer, int rowIndex, Component placeholder) {
+		CompletableFuture<T> rowDataFuture = renderer.loadRowData(rowIndex);
+		if (rowDataFuture == null) {
+			throw new IllegalStateException("the renderer returned no future for the row " + rowIndex);
+		}
+		registerLoadingPlaceholder(placeholder, rowIndex);
+		rowDataFuture.whenComplete((rowData, error) -> {
+			if (error != null) {
+				error.printStackTrace();
+			} else {
+				enqueueLoadedRow(new LoadedRow<>(renderer, placeholder, rowData));
+			}
+		});
+	}
+
+
+	synchronized void rearrangeRows(IntUnaryOperator destinationRowOf) {
+		loadingPlaceholderRowsMap.replaceAll((placeholder, rowIndex) -> destinationRowOf.applyAsInt(rowIndex));
+	}
+
+
+	/*
+	 * A commit prepared by a worker before a placeholder was replaced still holds the
+	 * placeholder; it is swapped here, on the event dispatch thread, for the built component.
+	 */
+	Component resolveComponent(Component component) {
+		Component resolvedComponent = resolvedPlaceholdersMap.get(component);
+		return resolvedComponent == null ? component : resolvedComponent;
+	}
+
+
+	private synchronized void registerLoadingPlaceholder(Component placeholder, int rowIndex) {
+		loadingPlaceholderRowsMap.put(placeholder, rowIndex);
+	}
+
+
+	private synchronized int takeLoadingPlaceholderRow(Component placeholder) {
+		Integer rowIndex = loadingPlaceholderRowsMap.remove(placeholder);
+		return rowIndex == null ? -1 : rowIndex;
+	}
+
+
+	private synchronized void enqueueLoadedRow(LoadedRow<?> loadedRow) {
+		loadedRows.add(loadedRow);
+		if (!isFlushScheduled) {
+			isFlushScheduled = true;
+			SwingUtilities.invokeLater(this::replaceLoadedPlaceholders);
+		}
+	}
+
+
+	private synchronized List<LoadedRow<?>> takeLoadedRows() {
+		List<LoadedRow<?>> takenRows = loadedRows;
+		loadedRows = new ArrayList<>();
+		isFlushScheduled = false;
+		return takenRows;
+	}
+
+
+	private void replaceLoadedPlaceholders() {
+		boolean isViewChanged = false;
+		for (LoadedRow<?> loadedRow : takeLoadedRows()) {
+			int rowIndex = takeLoadingPlaceholderRow(loadedRow.placeholder);
+			if (rowIndex < 0 || !rowComponentCache.containsComponent(rowIndex, loadedRow.placeholder)) {continue;}
+			try {
+				Component builtComponent = loadedRow.buildComponent(rowIndex);
+				if (builtComponent == null || !rowComponentCache.replace(rowIndex, loadedRow.placeholder, 
+						builtComponent)) {continue;}
+				resolvedPlaceholdersMap.put(loadedRow.placeholder, builtComponent);
+				isViewChanged |= resizableViewPortScroll.replaceMountedComponent(rowIndex, loadedRow.placeholder, 
+						builtComponent);
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+			}
+		}
+		if (isViewChanged) {
+			resizableViewPortScroll.revalidate();
+			resizableViewPortScroll.repaint();
+		}
+	}
+
+
+	private static class LoadedRow<T> {
+		private AsyncToDisplayComponentRenderer<T> renderer;
+		private Component placeholder;
+		private T rowData;
+
+
+		private LoadedRow(AsyncToDisplayComponentRenderer<T> renderer, Component placeholder, T rowData) {
+			this.renderer = renderer;
+			this.placeholder = placeholder;
+			this.rowData = rowData;
+		}
+
+
+		private Component buildComponent(int rowIndex) {
+			return renderer.buildComponent(rowIndex, rowData);
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package mx.gob.cofepris.cos.deds.dynamicRowsLoader;
+
+import java.awt.Component;
+import java.util.concurrent.CompletableFuture;
+import javax.swing.JPanel;
+
+/**
+ * A {@link ToDisplayComponentRenderer} whose rows are built in two steps: first, the
+ * information of the row is loaded, without blocking, away from the event dispatch thread;
+ * then, once the information is available, the Component of the row is built on the event
+ * dispatch thread.
+ * <br>
+ * While the information of a row is being loaded, a placeholder is displayed in its place, so
+ * a slow data source never delays the scrolling or the display of the rows already loaded. The
+ * rows whose information arrives at about the same time are built and replace their
+ * placeholders in a single step on the event dispatch thread.
+ * <br>
+ * The notification of a {@link DisplayUpdateTaskOverListener} is sent once the placeholders of
+ * the visible rows are displayed, without waiting for their information.
+ *
+ * @author kijimenez
+ *
+ * @param <T> the type of the information of a row.
+ */
+public interface AsyncToDisplayComponentRenderer<T> extends ToDisplayComponentRenderer {
+
+	/**
+	 * Starts loading the information of the row at the given index. This method is called away
+	 * from the event dispatch thread and must return immediately; the loading itself should
+	 * run on an executor of the application (for instance, through
+	 * {@link CompletableFuture#supplyAsync(java.util.function.Supplier, java.util.concurrent.Executor)}).
+	 * <br>
+	 * If the returned future completes exceptionally, the error is printed and the placeholder
+	 * of the row stays on the screen until the row is requested again.
+	 *
+	 * @param componentIndex the index of the row whose information is requested.
+	 *
+	 * @return the future that completes with the information of the row; it cannot be null.
+	 */
+	public CompletableFuture<T> loadRowData(int componentIndex);
+
+
+	/**
+	 * Builds the Component that displays the row at the given index with the loaded
+	 * information. This method is always called on the event dispatch thread.
+	 *
+	 * @param componentIndex the index of the row.
+	 * @param rowData the information returned through the future of {@link #loadRowData}.
+	 *
+	 * @return the component to display in place of the placeholder of the row.
+	 */
+	public Component buildComponent(int componentIndex, T rowData);
+
+
+	/**
+	 * Returns the Component displayed at the given index while the information of the row is
+	 * being loaded. It should be cheap to build and, ideally, take the height registered for
+	 * the row. By default, an empty panel is returned.
+	 * <br>
+	 * Unlike {@link #buildComponent}, it is called on the row-update-thread, as
+	 * {@link #retrieveComponent} for other renderers: the placeholder is not displayed yet,
+	 * and it must not read nor change any Component that already is.
+	 *
+	 * @param componentIndex the index of the row.
+	 *
+	 * @return the placeholder of the row; a new one for each call.
+	 */
+	public default Component createPlaceholder(int componentIndex) {
+		return new JPanel();
+	}
+
+
+	/**
+	 * Loads the information of the row at the given index, waiting for it, and builds its
+	 * Component. The Dynamic Rows Loader API does not call this method for this kind of
+	 * renderer; it is provided so the renderer can still be used wherever a plain
+	 * {@link ToDisplayComponentRenderer} is expected.
+	 */
+	@Override
+	public default Component retrieveComponent(int componentIndex) {
+		return buildComponent(componentIndex, loadRowData(componentIndex).join());
+	}
+}
@@ -0,0 +1,216 @@
+package mx.gob.cofepris.cos.deds.dynamicRowsLoader;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Represents the engine that runs the GUI update tasks of one or more
+ * {@link MultiRowViewRenditionManager}s. By default, every MultiRowViewRenditionManager uses
+ * the shared engine returned by {@link #getSharedEngine}, so the number of threads does not
+ * grow with the number of scroll panes of the application.
+ * <br>
+ * The engine runs at most a bounded number of tasks at the same time. When more tasks are
+ * waiting, the ones of the MultiRowViewRenditionManagers whose scroll pane holds the keyboard
+ * focus run first, then the ones whose scroll pane is showing on the screen and, finally, the
+ * rest. The rows built ahead of the screen, beyond the visible ones, are built after all of
+ * them. Tasks with the same priority run in the order they were requested, and each
+ * MultiRowViewRenditionManager runs a single task per turn, so a manager that requests updates
+ * continuously cannot delay the others.
+ * <br>
+ * The threads of the engine can be provided by any {@link Executor}; for instance, on Java 21
+ * or later, an executor of virtual threads can be used through
+ * {@code new DisplayUpdateExecutionEngine(Executors.newVirtualThreadPerTaskExecutor(), 8)}.
+ *
+ * @author kijimenez
+ *
+ */
+public final class DisplayUpdateExecutionEngine {
+	static final int FOCUSED_PRIORITY = 2;
+	static final int SHOWING_PRIORITY = 1;
+	static final int HIDDEN_PRIORITY = 0;
+	static final int PREFETCH_PRIORITY = -1;
+	private static final long IDLE_WORKER_KEEP_ALIVE_SECONDS = 30;
+	private static DisplayUpdateExecutionEngine sharedEngine;
+	private Executor executor;
+	private ExecutorService ownedExecutorService;
+	private int maximumConcurrentTasks;
+	private PriorityQueue<ScheduledTurn> pendingTurns = new PriorityQueue<>(
+			Comparator.comparingInt((ScheduledTurn turn) -> -turn.priority)
+				.thenComparingLong(turn -> turn.sequence));
+	private int runningWorkersCount = 0;
+	private long turnsSequence = 0;
+	private boolean isShutdown = false;
+	private boolean isShared = false;
+
+
+	/**
+	 * Creates an engine that owns a pool of daemon threads. The threads are created on demand
+	 * and released after being idle for a while, and they never prevent the JVM from exiting.
+	 *
+	 * @param workerThreadsCount the maximum number of tasks run at the same time.
+	 *
+	 * @throws IllegalArgumentException if workerThreadsCount is less than one.
+	 */
+	public DisplayUpdateExecutionEngine(int workerThreadsCount) {
+		if (workerThreadsCount < 1) {
+			throw new IllegalArgumentException("the workerThreadsCount must be at least one");
+		}
+		ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(workerThreadsCount,
+				workerThreadsCount, IDLE_WORKER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(), new DaemonThreadFactory());
+		threadPoolExecutor.allowCoreThreadTimeOut(true);
+		this.ownedExecutorService = threadPoolExecutor;
+		this.executor = threadPoolExecutor;
+		this.maximumConcurrentTasks = workerThreadsCount;
+	}
+
+
+	/**
+	 * Creates an engine that runs its tasks on the threads of the given {@link Executor}. The
+	 * executor is not owned by the engine, so {@link #shutdown} does not shut it down.
+	 *
+	 * @param executor the executor that provides the threads.
+	 * @param maximumConcurrentTasks the maximum number of tasks handed to the executor at the
+	 * same time.
+	 *
+	 * @throws IllegalArgumentException if the executor is null or maximumConcurrentTasks is less
+	 * than one.
+	 */
+	public DisplayUpdateExecutionEngine(Executor executor, int maximumConcurrentTasks) {
+		if (executor == null) {
+			throw new IllegalArgumentException("the executor cannot be null");
+		} else if (maximumConcurrentTasks < 1) {
+			throw new IllegalArgumentException("the maximumConcurrentTasks must be at least one");
+		}
+		this.executor = executor;
+		this.maximumConcurrentTasks = maximumConcurrentTasks;
+	}
+
+
+	/**
+	 * Returns the engine shared by every {@link MultiRowViewRenditionManager} that was not given
+	 * another one. It owns a pool of daemon threads whose size depends on the number of
+	 * available processors, from one up to four threads.
+	 *
+	 * @return the shared engine.
+	 */
+	public static synchronized DisplayUpdateExecutionEngine getSharedEngine() {
+		if (sharedEngine == null) {
+			int processorsCount = Runtime.getRuntime().availableProcessors();
+			sharedEngine = new DisplayUpdateExecutionEngine(Math.max(1, Math.min(4, processorsCount / 2)));
+			sharedEngine.isShared = true;
+		}
+		return sharedEngine;
+	}
+
+
+	/**
+	 * Stops this engine. The tasks waiting to run are discarded, the tasks already running are
+	 * allowed to finish and the requests received afterwards are ignored. If the engine owns its
+	 * threads, they are released.
+	 *
+	 * @throws IllegalStateException if this is the shared engine, which lives as long as the
+	 * application.
+	 */
+	public void shutdown() {
+		if (isShared) {
+			throw new IllegalStateException("the shared engine cannot be shut down");
+		}
+		synchronized (this) {
+			isShutdown = true;
+			pendingTurns.clear();
+		}
+		if (ownedExecutorService != null) {
+			ownedExecutorService.shutdown();
+		}
+	}
+
+
+	synchronized void execute(Runnable turn, int priority) {
+		if (isShutdown) {return;}
+		pendingTurns.add(new ScheduledTurn(turn, priority, turnsSequence++));
+		if (runningWorkersCount < maximumConcurrentTasks) {
+			runningWorkersCount++;
+			try {
+				executor.execute(this::runPendingTurns);
+			} catch (RuntimeException e) {
+				runningWorkersCount--;
+				throw e;
+			}
+		}
+	}
+
+
+	/*
+	 * Moves a turn that is still waiting up to the given priority, behind the turns already
+	 * waiting with it; a turn that already started, or has a higher priority, is left as is.
+	 */
+	synchronized void raisePriority(Runnable turn, int priority) {
+		for (ScheduledTurn scheduledTurn : pendingTurns) {
+			if (scheduledTurn.turn == turn) {
+				if (scheduledTurn.priority < priority) {
+					pendingTurns.remove(scheduledTurn);
+					pendingTurns.add(new ScheduledTurn(turn, priority, turnsSequence++));
+				}
+				return;
+			}
+		}
+	}
+
+
+	private synchronized Runnable takeNextTurn() {
+		ScheduledTurn scheduledTurn = pendingTurns.poll();
+		if (scheduledTurn == null) {
+			runningWorkersCount--;
+			return null;
+		}
+		return scheduledTurn.turn;
+	}
+
+
+	private void runPendingTurns() {
+		Runnable turn;
+		while ((turn = takeNextTurn()) != null) {
+			try {
+				turn.run();
+			} catch (Throwable e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+
+	private static class ScheduledTurn {
+		private Runnable turn;
+		private int priority;
+		private long sequence;
+
+
+		private ScheduledTurn(Runnable turn, int priority, long sequence) {
+			this.turn = turn;
+			this.priority = priority;
+			this.sequence = sequence;
+		}
+	}
+
+
+	private static class DaemonThreadFactory implements ThreadFactory {
+		private static final AtomicInteger threadsCount = new AtomicInteger();
+
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread workerThread = new Thread(runnable, "dynamic-rows-loader-worker-" + threadsCount.incrementAndGet());
+			workerThread.setDaemon(true);
+			return workerThread;
+		}
+	}
+}
@@ -1,21 +1,36 @@
 package mx.gob.cofepris.cos.deds.dynamicRowsLoader;
 
 import java.awt.*;
-import java.lang.reflect.*;
 import java.util.*;
+import java.util.List;
+import java.util.function.BooleanSupplier;
 import javax.swing.*;
 
 
 class DisplayViewUpdateTask {
 	ToDisplayComponentRenderer toDisplayComponentRenderer;
-	Map<Integer, Component> displayedComponentsCache;
+	RowComponentCache displayedComponentsCache;
+	long cacheGeneration;
+	BooleanSupplier supersededCondition;
+	RecycledComponentsPool recycledComponentsPool;
+	AsyncRowComponentsLoader asyncRowComponentsLoader;
 	ResizableViewPortScroll displayerScroll;
-	ArrayList<Integer> heightsList;
-	ArrayList<Point> pointsList;
+	RowGeometry rowGeometry;
+	OverscanPolicy overscanPolicy;
+	RowGeometry columnGeometry;
+	OverscanPolicy columnOverscanPolicy;
+	boolean screenWentRight;
+	TileArrangement tileArrangement;
+	int liveRowIndex = -1;
+	long targetVirtualViewY = -1;
+	Runnable targetReachedAction;
 	private int currentInitialVisibleIndex = -1;
-	private int initialCachedVisibleIndex = -1;
 	private int currentFinalVisibleIndex = -1;
-	private int finalCachedVisibleIndex = -1;	
+	private int prefetchInitialIndex = -1;
+	private int prefetchFinalIndex = -1;
+	private int firstVisibleColumnIndex = 0;
+	private int lastVisibleColumnIndex = -1;
+	int progressiveCommitChunkSize;
 	boolean screenWentDown;
 	private DisplayUpdateTaskOverListener displayUpdateTaskOverListener;	
 	
@@ -23,9 +38,13 @@ class DisplayViewUpdateTask {
 	DisplayViewUpdateTask() {}
 
 
-	public void displayComponentsInViewRange() {
+	/*
+	 * Returns false if the task was superseded before displaying the visible rows; otherwise,
+	 * the rows ahead of the screen are left for prefetchOffscreenComponents.
+	 */
+	public boolean displayComponentsInViewRange() {
 		setWorkingIndexes();
-		displayComponents(screenWentDown);
+		if (!displayComponents(screenWentDown)) {return false;}
 		SwingUtilities.invokeLater(new Runnable() {
 			@Override
 			public void run() {
@@ -35,164 +54,326 @@ class DisplayViewUpdateTask {
 				}
 			}			
 		});
+		return true;
 	}
 
 
 	private void setWorkingIndexes() {		
-		Point firstPoint = retrieveVisibleViewEdgePoint(false);
-		Point lastPoint = retrieveVisibleViewEdgePoint(true);
-		currentInitialVisibleIndex = pointsList.indexOf(firstPoint);
-		currentFinalVisibleIndex = pointsList.indexOf(lastPoint);	
-		if (!displayedComponentsCache.isEmpty()) {
-			TreeSet<Integer> orderedCachedIndexesSet = new TreeSet<Integer>();
-			orderedCachedIndexesSet.addAll(displayedComponentsCache.keySet());
-			setInitialCachedVisibleIndex(orderedCachedIndexesSet);
-			setFinalCachedVisibleIndex(orderedCachedIndexesSet);
+		currentInitialVisibleIndex = retrieveVisibleViewEdgeIndex(false);
+		currentFinalVisibleIndex = retrieveVisibleViewEdgeIndex(true);	
+		if (currentInitialVisibleIndex >= 0 && currentFinalVisibleIndex >= 0) {
+			prefetchInitialIndex = overscanPolicy.resolveFirstIndex(rowGeometry, currentInitialVisibleIndex, 
+					screenWentDown);
+			prefetchFinalIndex = overscanPolicy.resolveLastIndex(rowGeometry, currentFinalVisibleIndex, 
+					screenWentDown);
+		}
+		if (tileArrangement != null) {
+			setTileWorkingIndexes();
+		}
+		if (toDisplayComponentRenderer instanceof ToDisplayCellRenderer) {
+			setVisibleColumnIndexes();
+		}
+		if (toDisplayComponentRenderer instanceof StampRowRenderer) {
+			restrictWorkingIndexesToLiveRow();
 		}
 	}
 
 
-	private Point retrieveVisibleViewEdgePoint(boolean isLastPoint) {
-		Dimension visibleSize = displayerScroll.getViewport().getExtentSize();
-		int verticalSpace = isLastPoint ? visibleSize.height : 0;
-		Point position = displayerScroll.getViewport().getViewPosition();
-		position = new Point(0, (position.y + verticalSpace));
-		while (!pointsList.contains(position) && position.y > 0) {
-			position = new Point(0, position.y - 1);
-		}
-		return position;
+	/*
+	 * The rows of a StampRowRenderer are painted by the view, so only the live row, if it is 
+	 * visible, is built and displayed.
+	 */
+	private void restrictWorkingIndexesToLiveRow() {
+		boolean isLiveRowVisible = currentInitialVisibleIndex >= 0 && liveRowIndex >= currentInitialVisibleIndex 
+				&& liveRowIndex <= currentFinalVisibleIndex;
+		int workingIndex = isLiveRowVisible ? liveRowIndex : -1;
+		currentInitialVisibleIndex = workingIndex;
+		currentFinalVisibleIndex = workingIndex;
+		prefetchInitialIndex = workingIndex;
+		prefetchFinalIndex = workingIndex;
 	}
 
 
-	private void setInitialCachedVisibleIndex(TreeSet<Integer> orderedCachedIndexesSet) {
-		for (int browsedIndex : orderedCachedIndexesSet) {
-			if (browsedIndex >= currentInitialVisibleIndex) {
-				initialCachedVisibleIndex = browsedIndex;
-				break;
-			}
-		}		
+	/*
+	 * In tile mode the geometry holds lines of tiles, so the line indexes found above are turned
+	 * into the indexes of their first and last tiles; the rest of the task works with tiles.
+	 */
+	private void setTileWorkingIndexes() {
+		if (currentInitialVisibleIndex < 0 || currentFinalVisibleIndex < 0) {return;}
+		currentInitialVisibleIndex = tileArrangement.getFirstTileOfLine(currentInitialVisibleIndex);
+		currentFinalVisibleIndex = tileArrangement.getLastTileOfLine(currentFinalVisibleIndex);
+		prefetchInitialIndex = tileArrangement.getFirstTileOfLine(prefetchInitialIndex);
+		prefetchFinalIndex = tileArrangement.getLastTileOfLine(prefetchFinalIndex);
 	}
 
 
-	private void setFinalCachedVisibleIndex(TreeSet<Integer> orderedCachedIndexesSet) {		
-		for (int browsedIndex = orderedCachedIndexesSet.last() ; browsedIndex >= 0 ; browsedIndex--) {
-			if (browsedIndex <= currentFinalVisibleIndex) {
-				finalCachedVisibleIndex = browsedIndex;
-				break;
-			}
-		}
+	/*
+	 * The columns are handled as the rows: the ones that intersect the visible portion of the 
+	 * view, plus the column overscan area, toward the side the screen moved.
+	 */
+	private void setVisibleColumnIndexes() {
+		Rectangle visibleRectangle = displayerScroll.getViewport().getViewRect();
+		int initialColumnIndex = columnGeometry.indexAtY(visibleRectangle.x);
+		int finalColumnIndex = columnGeometry.indexAtY(visibleRectangle.x + visibleRectangle.width);
+		if (initialColumnIndex < 0 || finalColumnIndex < 0) {return;}
+		firstVisibleColumnIndex = columnOverscanPolicy.resolveFirstIndex(columnGeometry, initialColumnIndex, 
+				screenWentRight);
+		lastVisibleColumnIndex = columnOverscanPolicy.resolveLastIndex(columnGeometry, finalColumnIndex, 
+				screenWentRight);
 	}
 
 
-	private void displayComponents(boolean screenWentDown) {
+	/*
+	 * A task with a target view position works on the rows the view will show once moved there,
+	 * rather than on the rows it shows now.
+	 */
+	private int retrieveVisibleViewEdgeIndex(boolean isLastIndex) {
+		Dimension visibleSize = displayerScroll.getViewport().getExtentSize();
+		int verticalSpace = isLastIndex ? visibleSize.height : 0;
+		long virtualViewY = targetVirtualViewY >= 0 ? targetVirtualViewY : displayerScroll.getVirtualViewY();
+		return rowGeometry.indexAtY(virtualViewY + verticalSpace);
+	}
+
+
+	/*
+	 * Returns false if the task was superseded before displaying all the rows; the rows already
+	 * built stay in the cache, so the newer task can reuse them.
+	 */
+	private boolean displayComponents(boolean screenWentDown) {
 		if (currentInitialVisibleIndex >= 0 && currentFinalVisibleIndex >= 0) {			
-			addCachedComponentsInRange();
-			if (screenWentDown) {
-				iterateFromUpToDown();
-			} else {
-				iterateFromDownToUp();
-			}
+			if (!retrieveMissingComponentRanges(currentInitialVisibleIndex, currentFinalVisibleIndex)) {return false;}
+			boolean areComponentsDisplayed = screenWentDown ? iterateFromUpToDown() : iterateFromDownToUp();
+			if (!areComponentsDisplayed) {return false;}
 			clearNotDisplayedObjectsFromMap();			
+		} else if (toDisplayComponentRenderer instanceof StampRowRenderer) {
+			if (!commitStampRowsOnly()) {return false;}
+			clearNotDisplayedObjectsFromMap();
 		}
+		return true;
 	}
 
 
-	private void addCachedComponentsInRange() {
-		try {
-			Runnable displayerScrollUpdateThread = createDisplayerScrollUpdateRunnable();			
-			SwingUtilities.invokeAndWait(displayerScrollUpdateThread);
-		} catch (InterruptedException e) {
-		} catch (InvocationTargetException e) {
-			e.printStackTrace();
-		}		
-	}
-	
-	
-	private Runnable createDisplayerScrollUpdateRunnable() {
-		return new Runnable() {
-			@Override
-			public void run() {
-				displayerScroll.clearComponentsViewDisplay();
-				if (initialCachedVisibleIndex != -1 && finalCachedVisibleIndex != -1) {
-					for (int i = initialCachedVisibleIndex ; i <= finalCachedVisibleIndex ; i++) {
-						Component cachedComponent = displayedComponentsCache.get(i);	
-						displayerScroll.addComponentToViewDisplay(cachedComponent, true); 
-					}
-    				displayerScroll.setInicialAndFinalSpaceAdjustHeight(calculateInicialSpaceAdjust(initialCachedVisibleIndex), 
-    						calculateFinalSpaceAdjust(finalCachedVisibleIndex));					
-				}
-			}
-		};
+	/*
+	 * With no live row to display, the view still needs the geometry to paint the stamps, and
+	 * the former live row must be removed.
+	 */
+	private boolean commitStampRowsOnly() {
+		if (supersededCondition.getAsBoolean()) {return false;}
+		new ScrollViewUpdater().setTargetDisplayerScroll(displayerScroll)
+			.setTargetComponents(new ArrayList<>())
+			.setFirstComponentIndex(0)
+			.setRowGeometry(rowGeometry)
+			.setCommitCondition(() -> displayedComponentsCache.getGeneration() == cacheGeneration)
+			.setTargetViewPosition(targetVirtualViewY, targetReachedAction)
+			.updateScrollView();
+		return true;
 	}
 
 
-	private void iterateFromUpToDown() {
+	private boolean iterateFromUpToDown() {
+		ArrayList<Component> targetComponents = new ArrayList<>();
+		int builtComponentsCount = 0;
 		for (int i = currentInitialVisibleIndex; i <= currentFinalVisibleIndex; i++) {
-			if (i < initialCachedVisibleIndex || i > finalCachedVisibleIndex) {
-    			new ScrollViewUpdater().setTargetDisplayerScroll(displayerScroll)
-    				.setTargetComponent(retrieveMappedComponent(i))
-    				.setInicialSpaceHeight(calculateInicialSpaceAdjust(currentInitialVisibleIndex))
-    				.setFinalSpaceHeight(calculateFinalSpaceAdjust(i))
-    				.setScreenWentDown(true)
-    				.updateScrollView();
+			if (supersededCondition.getAsBoolean()) {return false;}
+			builtComponentsCount += displayedComponentsCache.containsKey(i) ? 0 : 1;
+			targetComponents.add(retrieveMappedComponent(i));
+			if (isCommitChunkComplete(builtComponentsCount) && i < currentFinalVisibleIndex) {
+				commitComponents(currentInitialVisibleIndex, targetComponents);
+				builtComponentsCount = 0;
 			}
 		}
+		return commitComponents(currentInitialVisibleIndex, targetComponents);
 	}
 
 
-	private void iterateFromDownToUp() {
+	private boolean iterateFromDownToUp() {
+		ArrayDeque<Component> targetComponents = new ArrayDeque<>();
+		int builtComponentsCount = 0;
 		for (int i = currentFinalVisibleIndex; i >= currentInitialVisibleIndex; i--) {	
-			if (i < initialCachedVisibleIndex || i > finalCachedVisibleIndex) {
-    			new ScrollViewUpdater().setTargetDisplayerScroll(displayerScroll)
-    				.setTargetComponent(retrieveMappedComponent(i))
-    				.setInicialSpaceHeight(calculateInicialSpaceAdjust(i))
-    				.setFinalSpaceHeight(calculateFinalSpaceAdjust(currentFinalVisibleIndex))
-    				.setScreenWentDown(false)
-    				.updateScrollView();
+			if (supersededCondition.getAsBoolean()) {return false;}
+			builtComponentsCount += displayedComponentsCache.containsKey(i) ? 0 : 1;
+			targetComponents.addFirst(retrieveMappedComponent(i));
+			if (isCommitChunkComplete(builtComponentsCount) && i > currentInitialVisibleIndex) {
+				commitComponents(i, targetComponents);
+				builtComponentsCount = 0;
+			}
+		}
+		return commitComponents(currentInitialVisibleIndex, targetComponents);
+	}
+
+
+	/*
+	 * A range renderer builds at once each run of consecutive rows that are not cached, in the
+	 * direction the screen moved; other renderers build their rows one by one while iterating.
+	 */
+	private boolean retrieveMissingComponentRanges(int firstIndex, int lastIndex) {
+		if (!(toDisplayComponentRenderer instanceof RangeToDisplayComponentRenderer)) {return true;}
+		int rowIndex = screenWentDown ? firstIndex : lastIndex;
+		int step = screenWentDown ? 1 : -1;
+		while (rowIndex >= firstIndex && rowIndex <= lastIndex) {
+			if (supersededCondition.getAsBoolean()) {return false;}
+			if (displayedComponentsCache.containsKey(rowIndex)) {
+				rowIndex += step;
+				continue;
+			}
+			int missingRangeEdge = rowIndex;
+			while (missingRangeEdge + step >= firstIndex && missingRangeEdge + step <= lastIndex 
+					&& !displayedComponentsCache.containsKey(missingRangeEdge + step)) {
+				missingRangeEdge += step;
 			}
+			retrieveComponentRange(Math.min(rowIndex, missingRangeEdge), Math.max(rowIndex, missingRangeEdge));
+			rowIndex = missingRangeEdge + step;
+		}
+		return true;
+	}
+
+
+	private void retrieveComponentRange(int firstIndex, int lastIndex) {
+		List<Component> rangeComponents = ((RangeToDisplayComponentRenderer) toDisplayComponentRenderer)
+				.retrieveComponents(firstIndex, lastIndex + 1);
+		if (rangeComponents == null || rangeComponents.size() != lastIndex - firstIndex + 1) {
+			throw new IllegalStateException("the renderer must return one component for each row of the range ["
+					+ firstIndex + ", " + (lastIndex + 1) + ")");
+		}
+		for (int rowIndex = firstIndex ; rowIndex <= lastIndex ; rowIndex++) {
+			displayedComponentsCache.put(rowIndex, rangeComponents.get(rowIndex - firstIndex), cacheGeneration);
 		}
 	}
 
 
+	/*
+	 * The view is only moved to a target position once all of its rows are built, so those 
+	 * rows are committed at once.
+	 */
+	private boolean isCommitChunkComplete(int builtComponentsCount) {
+		return progressiveCommitChunkSize > 0 && targetVirtualViewY < 0 
+				&& builtComponentsCount >= progressiveCommitChunkSize;
+	}
+
+
+	/*
+	 * Each commit declares the whole range of rows that must be displayed; the scroll only 
+	 * adds or removes the rows at the edges that differ from the ones already displayed.
+	 */
+	private boolean commitComponents(int firstComponentIndex, Collection<Component> targetComponents) {
+		if (supersededCondition.getAsBoolean()) {return false;}
+		int lastComponentIndex = firstComponentIndex + targetComponents.size() - 1;
+		new ScrollViewUpdater().setTargetDisplayerScroll(displayerScroll)
+			.setTargetComponents(new ArrayList<>(targetComponents))
+			.setFirstComponentIndex(firstComponentIndex)
+			.setRowGeometry(rowGeometry)
+			.setInicialSpaceHeight(calculateInicialSpaceAdjust(firstComponentIndex))
+			.setFinalSpaceHeight(calculateFinalSpaceAdjust(lastComponentIndex))
+			.setAsyncRowComponentsLoader(asyncRowComponentsLoader)
+			.setCommitCondition(() -> displayedComponentsCache.getGeneration() == cacheGeneration)
+			.setVisibleColumns(columnGeometry, firstVisibleColumnIndex, lastVisibleColumnIndex)
+			.setTileArrangement(tileArrangement)
+			.setTargetViewPosition(targetVirtualViewY, targetReachedAction)
+			.updateScrollView();
+		return true;
+	}
+
+
+	/*
+	 * A component built after the cache generation changed is not cached, and it will not be
+	 * committed either; if it came from the pool, it goes back to it.
+	 */
 	private Component retrieveMappedComponent(int componentIndex) {
-		Component targetComponent = null;
-		if (!displayedComponentsCache.containsKey(componentIndex)) {
-			targetComponent = toDisplayComponentRenderer.retrieveComponent(componentIndex);
-			displayedComponentsCache.put(componentIndex, targetComponent);
+		Component targetComponent = displayedComponentsCache.get(componentIndex);
+		if (targetComponent == null) {
+			targetComponent = buildComponent(componentIndex);
+			boolean isComponentCached = displayedComponentsCache.put(componentIndex, targetComponent, cacheGeneration);
+			if (!isComponentCached && toDisplayComponentRenderer instanceof RecyclingComponentRenderer) {
+				recycledComponentsPool.recycleComponent(targetComponent, componentIndex);
+			} else if (isComponentCached && toDisplayComponentRenderer instanceof AsyncToDisplayComponentRenderer) {
+				asyncRowComponentsLoader.loadRowData(
+						(AsyncToDisplayComponentRenderer<?>) toDisplayComponentRenderer, componentIndex, targetComponent);
+			}
+		}
+		if (targetComponent instanceof VirtualCellsRow) {
+			((VirtualCellsRow) targetComponent).prepareCells((ToDisplayCellRenderer) toDisplayComponentRenderer, 
+					componentIndex, firstVisibleColumnIndex, lastVisibleColumnIndex);
 		}
-		targetComponent = displayedComponentsCache.get(componentIndex);
 		return targetComponent;
 	}
 
 
+	/*
+	 * Runs on the row-update-thread: the components built here are not displayed until the
+	 * commit on the event dispatch thread adds them to the scroll pane.
+	 */
+	private Component buildComponent(int componentIndex) {
+		if (toDisplayComponentRenderer instanceof ToDisplayCellRenderer) {
+			return new VirtualCellsRow();
+		} else if (toDisplayComponentRenderer instanceof RecyclingComponentRenderer) {
+			return recycledComponentsPool.obtainComponent(
+					(RecyclingComponentRenderer) toDisplayComponentRenderer, componentIndex);
+		} else if (toDisplayComponentRenderer instanceof AsyncToDisplayComponentRenderer) {
+			return ((AsyncToDisplayComponentRenderer<?>) toDisplayComponentRenderer).createPlaceholder(componentIndex);
+		}
+		return toDisplayComponentRenderer.retrieveComponent(componentIndex);
+	}
+
+
 	private int calculateInicialSpaceAdjust(int initialPointIndex) {
-		Point firstVisiblePoint = pointsList.get(initialPointIndex);
-		int inicialSpace = firstVisiblePoint.y;
-		return inicialSpace;
+		initialPointIndex = toGeometryIndex(initialPointIndex);
+		long inicialSpace = rowGeometry.getOffset(initialPointIndex);
+		return (int) Math.min(inicialSpace, Integer.MAX_VALUE);
 	}
 
 
 	private int calculateFinalSpaceAdjust(int lastPointIndex) {
-		Point lastVisiblePoint = pointsList.get(lastPointIndex);
-		int lastVisibleHeight = heightsList.get(lastPointIndex);
-		int lastVisibleComponentExtent = lastVisiblePoint.y + lastVisibleHeight;
-		int lastIndex = heightsList.size() - 1;
-		Point lastPoint = pointsList.get(lastIndex);
-		int lastHeight = heightsList.get(lastIndex);
-		int displayHeight = lastPoint.y + lastHeight;
-		int finalSpace = displayHeight - lastVisibleComponentExtent;
-		return finalSpace;
+		lastPointIndex = toGeometryIndex(lastPointIndex);
+		long lastVisibleComponentExtent = rowGeometry.getOffset(lastPointIndex) 
+				+ rowGeometry.getHeight(lastPointIndex);
+		long displayHeight = rowGeometry.getTotalHeight();
+		long finalSpace = displayHeight - lastVisibleComponentExtent;
+		return (int) Math.min(finalSpace, Integer.MAX_VALUE);
+	}
+
+
+	private int toGeometryIndex(int componentIndex) {
+		return tileArrangement == null ? componentIndex : tileArrangement.getLineOfTile(componentIndex);
 	}
 
 
 	private void clearNotDisplayedObjectsFromMap() {
-		Iterator<Integer> ketIterator = displayedComponentsCache.keySet().iterator();
-		while (ketIterator.hasNext()) {
-			int index = ketIterator.next();
-			if (index < currentInitialVisibleIndex || index > currentFinalVisibleIndex) {
-				ketIterator.remove();
-			}
+		displayedComponentsCache.retainRows(prefetchInitialIndex, prefetchFinalIndex);
+	}
+
+
+	/*
+	 * Runs after the visible rows were displayed, in a later turn of the lowest priority, 
+	 * building the rows of the overscan area nearest to the screen first and on the side the 
+	 * screen is moving to. It stops as soon as a newer task is requested.
+	 */
+	public void prefetchOffscreenComponents() {
+		if (currentInitialVisibleIndex < 0 || currentFinalVisibleIndex < 0) {return;}
+		if (screenWentDown) {
+			if (prefetchComponentsBelow()) {prefetchComponentsAbove();}
+		} else {
+			if (prefetchComponentsAbove()) {prefetchComponentsBelow();}
+		}
+	}
+
+
+	private boolean prefetchComponentsBelow() {
+		if (!retrieveMissingComponentRanges(currentFinalVisibleIndex + 1, prefetchFinalIndex)) {return false;}
+		for (int i = currentFinalVisibleIndex + 1 ; i <= prefetchFinalIndex ; i++) {
+			if (supersededCondition.getAsBoolean()) {return false;}
+			retrieveMappedComponent(i);
+		}
+		return true;
+	}
+
+
+	private boolean prefetchComponentsAbove() {
+		if (!retrieveMissingComponentRanges(prefetchInitialIndex, currentInitialVisibleIndex - 1)) {return false;}
+		for (int i = currentInitialVisibleIndex - 1 ; i >= prefetchInitialIndex ; i--) {
+			if (supersededCondition.getAsBoolean()) {return false;}
+			retrieveMappedComponent(i);
 		}
+		return true;
 	}
 
 
@@ -1,27 +1,45 @@
 package mx.gob.cofepris.cos.deds.dynamicRowsLoader;
 
 import java.awt.Component;
-import java.awt.Point;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.awt.KeyboardFocusManager;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.HierarchyListener;
+import java.beans.PropertyChangeListener;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ToLongFunction;
+import javax.swing.SwingUtilities;
 
 
 class DisplayViewUpdateTaskScheduler {
-	private ExecutorService componentDisplayExecutorService = Executors.newSingleThreadExecutor();
-	private Future<?> lastDisplayUpdateTaskSubmmited;
-	private HashMap<Integer, Component> currentDisplayedComponentsCacheMap = new HashMap<>();
+	private DisplayUpdateExecutionEngine displayUpdateExecutionEngine;
+	private DisplayViewUpdateTaskBuilder pendingDisplayViewUpdateTaskBuilder;
+	private DisplayViewUpdateTask pendingPrefetchTask;
+	private int pendingExecutionPriority;
+	private Runnable drainTurn = this::runPendingDisplayViewUpdateTask;
+	private volatile int viewExecutionPriority = DisplayUpdateExecutionEngine.HIDDEN_PRIORITY;
+	private PropertyChangeListener focusOwnerListener = event -> refreshExecutionPriority();
+	private HierarchyListener viewShowingListener = this::viewShowingChanged;
+	private boolean isDrainTaskSubmmited = false;
+	private boolean isDisposed = false;
+	private volatile long requestedGeneration = 0;
+	private RecycledComponentsPool recycledComponentsPool = new RecycledComponentsPool();
+	private RowComponentCache rowComponentCache = new RowComponentCache(recycledComponentsPool);
+	private AsyncRowComponentsLoader asyncRowComponentsLoader;
 	private DisplayUpdateTaskOverListener displayUpdateTaskOverListener;
 	private ResizableViewPortScroll resizableViewPortScroll;
 
 	
-	DisplayViewUpdateTaskScheduler(ResizableViewPortScroll resizableViewPortScroll) {
+	DisplayViewUpdateTaskScheduler(ResizableViewPortScroll resizableViewPortScroll, 
+			DisplayUpdateExecutionEngine displayUpdateExecutionEngine) {
 		if (resizableViewPortScroll == null) {
 			throw new IllegalArgumentException("the resizableViewPortScroll cannot be null");
+		} else if (displayUpdateExecutionEngine == null) {
+			throw new IllegalArgumentException("the displayUpdateExecutionEngine cannot be null");
 		}
 		this.resizableViewPortScroll = resizableViewPortScroll;
+		this.displayUpdateExecutionEngine = displayUpdateExecutionEngine;
+		this.asyncRowComponentsLoader = new AsyncRowComponentsLoader(rowComponentCache, resizableViewPortScroll);
+		resizableViewPortScroll.addHierarchyListener(viewShowingListener);
 	}
 	
 	
@@ -32,57 +50,241 @@ class DisplayViewUpdateTaskScheduler {
 	
 	public void clearState() {		
 		stopLastDisplayUpdateTask();
-		lastDisplayUpdateTaskSubmmited = null;
-		currentDisplayedComponentsCacheMap.clear();
+		rowComponentCache.clear();
 	}
 
 
-	public DisplayViewUpdateTaskBuilder getPreparedDisplayViewUpdateTaskBuilder() {
+	/*
+	 * The running task stops at its next safe point; the rows it built for the former indexes
+	 * are neither cached nor displayed, since the cache generation changes.
+	 */
+	public void rearrangeRows(IntUnaryOperator destinationRowOf) {
 		stopLastDisplayUpdateTask();
+		rowComponentCache.rearrangeRows(destinationRowOf);
+		asyncRowComponentsLoader.rearrangeRows(destinationRowOf);
+	}
+
+
+	/*
+	 * After being disposed, the requests are ignored; a task that is still running stops at its
+	 * next safe point and cannot cache the rows it builds, since the cache generation changed.
+	 */
+	public void dispose() {
+		synchronized (this) {
+			isDisposed = true;
+		}
+		resizableViewPortScroll.removeHierarchyListener(viewShowingListener);
+		KeyboardFocusManager.getCurrentKeyboardFocusManager().removePropertyChangeListener("focusOwner", 
+				focusOwnerListener);
+		stopLastDisplayUpdateTask();
+		rowComponentCache.dispose();
+	}
+
+
+	/*
+	 * Returns the component kept for the row, as it would be committed, or null if the row is 
+	 * not built. Called on the event dispatch thread.
+	 */
+	public Component getKeptComponent(int rowIndex) {
+		Component keptComponent = rowComponentCache.get(rowIndex);
+		return keptComponent == null ? null : asyncRowComponentsLoader.resolveComponent(keptComponent);
+	}
+
+
+	public void setMaximumRecycledComponentsPerType(int maximumRecycledComponentsPerType) {
+		recycledComponentsPool.setMaximumPooledPerType(maximumRecycledComponentsPerType);
+	}
+
+
+	public void setMaximumRetainedRows(int maximumRetainedRows) {
+		rowComponentCache.setMaximumRetainedRows(maximumRetainedRows);
+	}
+
+
+	public void setRowCacheMemoryBudget(long memoryBudget, ToLongFunction<Component> memoryEstimator) {
+		rowComponentCache.setMemoryBudget(memoryBudget, memoryEstimator);
+	}
+
+
+	public void setSoftReferenceDemotionEnabled(boolean softReferenceDemotionEnabled) {
+		rowComponentCache.setSoftReferenceDemotionEnabled(softReferenceDemotionEnabled);
+	}
+
+
+	public void setRowEvictionListener(RowEvictionListener rowEvictionListener) {
+		rowComponentCache.setRowEvictionListener(rowEvictionListener);
+	}
+
+
+	public DisplayViewUpdateTaskBuilder getPreparedDisplayViewUpdateTaskBuilder() {
 		return new DisplayViewUpdateTaskBuilder();
 	}
 
 
+	/*
+	 * Only the newest request is kept: a request that was not started yet is replaced, and a
+	 * running task finds out it was superseded at its next safe point, through its generation.
+	 * At most one turn of this scheduler is waiting in the engine at any time; if it was waiting
+	 * to prefetch rows, it is moved up to the priority of the request.
+	 */
 	private synchronized void submmitDisplayViewUpdateTask(DisplayViewUpdateTaskBuilder displayViewUpdateTaskBuilder) {
-		stopLastDisplayUpdateTask();
-		lastDisplayUpdateTaskSubmmited = componentDisplayExecutorService.submit(
-				buildDisplayViewUpdateTask(displayViewUpdateTaskBuilder));
+		if (isDisposed) {return;}
+		displayViewUpdateTaskBuilder.generation = ++requestedGeneration;
+		pendingDisplayViewUpdateTaskBuilder = displayViewUpdateTaskBuilder;
+		pendingPrefetchTask = null;
+		pendingExecutionPriority = viewExecutionPriority;
+		if (!isDrainTaskSubmmited) {
+			isDrainTaskSubmmited = true;
+			displayUpdateExecutionEngine.execute(drainTurn, pendingExecutionPriority);
+		} else {
+			displayUpdateExecutionEngine.raisePriority(drainTurn, pendingExecutionPriority);
+		}
 	}
 
 
-	private void stopLastDisplayUpdateTask() {
-		if (lastDisplayUpdateTaskSubmmited != null) {
-			lastDisplayUpdateTaskSubmmited.cancel(true);
+	/*
+	 * Called on the event dispatch thread. The focus owner is only followed while the scroll pane
+	 * is showing, so the focus manager does not keep a scroll pane that is no longer displayed.
+	 */
+	private void viewShowingChanged(HierarchyEvent hierarchyEvent) {
+		if ((hierarchyEvent.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) == 0) {return;}
+		KeyboardFocusManager keyboardFocusManager = KeyboardFocusManager.getCurrentKeyboardFocusManager();
+		keyboardFocusManager.removePropertyChangeListener("focusOwner", focusOwnerListener);
+		if (resizableViewPortScroll.isShowing()) {
+			keyboardFocusManager.addPropertyChangeListener("focusOwner", focusOwnerListener);
 		}
+		refreshExecutionPriority();
 	}
 
 
-	private Runnable buildDisplayViewUpdateTask(final DisplayViewUpdateTaskBuilder displayViewUpdateTaskBuilder) {
-		Runnable displayViewUpdateTask = new Runnable() {
-			@Override
-			public void run() {
-				try {
-					DisplayViewUpdateTask displayViewUpdateTask = 
-							displayViewUpdateTaskBuilder.buildDisplayViewUpdateTask();
-					displayViewUpdateTask.setDisplayUpdateTaskOverListener(displayUpdateTaskOverListener);
-					displayViewUpdateTask.displayComponentsInViewRange();
-				} catch (Throwable e) {
-					e.printStackTrace();
-					throw e;
-				}
-			}
-		};
+	/*
+	 * The priority is resolved on the event dispatch thread, where the focus and the hierarchy
+	 * change, and only read by the threads that request the updates.
+	 */
+	private void refreshExecutionPriority() {
+		viewExecutionPriority = resolveExecutionPriority();
+	}
+
+
+	private int resolveExecutionPriority() {
+		Component focusOwner = KeyboardFocusManager.getCurrentKeyboardFocusManager().getFocusOwner();
+		if (focusOwner != null && SwingUtilities.isDescendingFrom(focusOwner, resizableViewPortScroll)) {
+			return DisplayUpdateExecutionEngine.FOCUSED_PRIORITY;
+		}
+		return resizableViewPortScroll.isShowing() ? DisplayUpdateExecutionEngine.SHOWING_PRIORITY 
+				: DisplayUpdateExecutionEngine.HIDDEN_PRIORITY;
+	}
+
+
+	private synchronized void stopLastDisplayUpdateTask() {
+		requestedGeneration++;
+		pendingDisplayViewUpdateTaskBuilder = null;
+		pendingPrefetchTask = null;
+	}
+
+
+	private synchronized DisplayViewUpdateTaskBuilder takePendingDisplayViewUpdateTaskBuilder() {
+		DisplayViewUpdateTaskBuilder displayViewUpdateTaskBuilder = pendingDisplayViewUpdateTaskBuilder;
+		pendingDisplayViewUpdateTaskBuilder = null;
+		return displayViewUpdateTaskBuilder;
+	}
+
+
+	private synchronized DisplayViewUpdateTask takePendingPrefetchTask() {
+		DisplayViewUpdateTask displayViewUpdateTask = pendingPrefetchTask;
+		pendingPrefetchTask = null;
 		return displayViewUpdateTask;
 	}
 
+
+	/*
+	 * The prefetch of a task is only kept while no newer task was requested.
+	 */
+	private synchronized void keepPrefetchTask(DisplayViewUpdateTask displayViewUpdateTask, long generation) {
+		if (!isGenerationSuperseded(generation)) {
+			pendingPrefetchTask = displayViewUpdateTask;
+		}
+	}
+
+
+	/*
+	 * Each turn runs a single task, or the prefetch of the last one, which takes a turn of its
+	 * own at the lowest priority, so it never delays the visible rows of any scheduler. If more
+	 * work is pending, the turn goes back to the engine, behind the turns of the other 
+	 * schedulers with the same priority.
+	 */
+	private void runPendingDisplayViewUpdateTask() {
+		DisplayViewUpdateTaskBuilder displayViewUpdateTaskBuilder = takePendingDisplayViewUpdateTaskBuilder();
+		try {
+			if (displayViewUpdateTaskBuilder != null) {
+				runDisplayViewUpdateTask(displayViewUpdateTaskBuilder);
+			} else {
+				runPrefetchTask(takePendingPrefetchTask());
+			}
+		} finally {
+			finishDrainTurn();
+		}
+	}
+
+
+	private synchronized void finishDrainTurn() {
+		if (isDisposed) {
+			isDrainTaskSubmmited = false;
+		} else if (pendingDisplayViewUpdateTaskBuilder != null) {
+			displayUpdateExecutionEngine.execute(drainTurn, pendingExecutionPriority);
+		} else if (pendingPrefetchTask != null) {
+			displayUpdateExecutionEngine.execute(drainTurn, DisplayUpdateExecutionEngine.PREFETCH_PRIORITY);
+		} else {
+			isDrainTaskSubmmited = false;
+		}
+	}
+
+
+	private void runDisplayViewUpdateTask(DisplayViewUpdateTaskBuilder displayViewUpdateTaskBuilder) {
+		try {
+			DisplayViewUpdateTask displayViewUpdateTask = 
+					displayViewUpdateTaskBuilder.buildDisplayViewUpdateTask();
+			displayViewUpdateTask.setDisplayUpdateTaskOverListener(displayUpdateTaskOverListener);
+			if (displayViewUpdateTask.displayComponentsInViewRange()) {
+				keepPrefetchTask(displayViewUpdateTask, displayViewUpdateTaskBuilder.generation);
+			}
+		} catch (Throwable e) {
+			e.printStackTrace();
+		}
+	}
+
+
+	private void runPrefetchTask(DisplayViewUpdateTask displayViewUpdateTask) {
+		if (displayViewUpdateTask == null) {return;}
+		try {
+			displayViewUpdateTask.prefetchOffscreenComponents();
+		} catch (Throwable e) {
+			e.printStackTrace();
+		}
+	}
+
+
+	private boolean isGenerationSuperseded(long generation) {
+		return generation != requestedGeneration;
+	}
+
 	
 	public class DisplayViewUpdateTaskBuilder {
 		private ToDisplayComponentRenderer toDisplayComponentRenderer;
 		
-		private ArrayList<Integer> heightsList;
-		private ArrayList<Point> pointsList;
+		private RowGeometry rowGeometry;
+		private OverscanPolicy overscanPolicy = OverscanPolicy.NONE;
+		private RowGeometry columnGeometry;
+		private OverscanPolicy columnOverscanPolicy = OverscanPolicy.NONE;
+		private boolean screenWentRight = true;
+		private TileArrangement tileArrangement;
+		private int liveRowIndex = -1;
+		private long targetVirtualViewY = -1;
+		private Runnable targetReachedAction;
+		private int progressiveCommitChunkSize = 0;
 		private boolean screenWentDown;
 		private boolean isScreenWentDownSet = false;
+		private long generation;
 
 
 		private DisplayViewUpdateTaskBuilder() {}
@@ -95,31 +297,73 @@ class DisplayViewUpdateTaskScheduler {
 		}
 
 
-		public DisplayViewUpdateTaskBuilder setHeightsList(ArrayList<Integer> heightsList) {
-			if (heightsList != null) {
-				ArrayList<Integer> cloneList = new ArrayList<>();
-				for (int originalHeight : heightsList) {
-					cloneList.add(new Integer(originalHeight));
-				}
-				this.heightsList = cloneList;
+		/*
+		 * The geometry is read by the task while the manager keeps changing its own, so it must
+		 * not change: either a snapshot or a saved geometry.
+		 */
+		public DisplayViewUpdateTaskBuilder setRowGeometry(RowGeometry rowGeometry) {
+			this.rowGeometry = rowGeometry;
+			return this;
+		}
+
+
+		public DisplayViewUpdateTaskBuilder setOverscanPolicy(OverscanPolicy overscanPolicy) {
+			if (overscanPolicy != null) {
+				this.overscanPolicy = overscanPolicy;
 			}
 			return this;
 		}
 
 
-		public DisplayViewUpdateTaskBuilder setPointsList(ArrayList<Point> pointsList) {
-			if (pointsList != null) {
-				ArrayList<Point> cloneList = new ArrayList<>();
-				for (Point originalPoint : pointsList) {
-					Point pointClone = new Point(originalPoint);
-					cloneList.add(pointClone);
-				}
-				this.pointsList = cloneList;
+		public DisplayViewUpdateTaskBuilder setColumnGeometry(RowGeometrySnapshot columnGeometry) {
+			this.columnGeometry = columnGeometry;
+			return this;
+		}
+
+
+		public DisplayViewUpdateTaskBuilder setColumnOverscanPolicy(OverscanPolicy columnOverscanPolicy) {
+			if (columnOverscanPolicy != null) {
+				this.columnOverscanPolicy = columnOverscanPolicy;
 			}
 			return this;
 		}
 
 
+		public DisplayViewUpdateTaskBuilder setScreenWentRight(boolean screenWentRight) {
+			this.screenWentRight = screenWentRight;
+			return this;
+		}
+
+
+		public DisplayViewUpdateTaskBuilder setTileArrangement(TileArrangement tileArrangement) {
+			this.tileArrangement = tileArrangement;
+			return this;
+		}
+
+
+		public DisplayViewUpdateTaskBuilder setLiveRowIndex(int liveRowIndex) {
+			this.liveRowIndex = liveRowIndex;
+			return this;
+		}
+
+
+		/*
+		 * A negative position keeps the view where it is; the action is run on the event 
+		 * dispatch thread once the view was moved.
+		 */
+		public DisplayViewUpdateTaskBuilder setTargetViewPosition(long targetVirtualViewY, Runnable targetReachedAction) {
+			this.targetVirtualViewY = targetVirtualViewY;
+			this.targetReachedAction = targetReachedAction;
+			return this;
+		}
+
+
+		public DisplayViewUpdateTaskBuilder setProgressiveCommitChunkSize(int progressiveCommitChunkSize) {
+			this.progressiveCommitChunkSize = progressiveCommitChunkSize;
+			return this;
+		}
+
+
 		public DisplayViewUpdateTaskBuilder setScreenWentDown(boolean screenWentDown) {
 			isScreenWentDownSet = true;
 			this.screenWentDown = screenWentDown;
@@ -135,33 +379,46 @@ class DisplayViewUpdateTaskScheduler {
 		private DisplayViewUpdateTask buildDisplayViewUpdateTask() {
 			DisplayViewUpdateTask displayViewUpdateTask = new DisplayViewUpdateTask();
 			displayViewUpdateTask.toDisplayComponentRenderer = toDisplayComponentRenderer;
-			displayViewUpdateTask.displayedComponentsCache = currentDisplayedComponentsCacheMap;
+			displayViewUpdateTask.displayedComponentsCache = rowComponentCache;
+			displayViewUpdateTask.cacheGeneration = rowComponentCache.getGeneration();
+			displayViewUpdateTask.supersededCondition = () -> isGenerationSuperseded(generation);
+			displayViewUpdateTask.recycledComponentsPool = recycledComponentsPool;
+			displayViewUpdateTask.asyncRowComponentsLoader = asyncRowComponentsLoader;
 			displayViewUpdateTask.displayerScroll = resizableViewPortScroll;
-			displayViewUpdateTask.heightsList = heightsList;
-			displayViewUpdateTask.pointsList = buildPointsList();
+			displayViewUpdateTask.rowGeometry = rowGeometry;
+			displayViewUpdateTask.overscanPolicy = overscanPolicy;
+			displayViewUpdateTask.columnGeometry = columnGeometry;
+			displayViewUpdateTask.columnOverscanPolicy = columnOverscanPolicy;
+			displayViewUpdateTask.screenWentRight = screenWentRight;
+			displayViewUpdateTask.tileArrangement = tileArrangement;
+			displayViewUpdateTask.liveRowIndex = liveRowIndex;
+			displayViewUpdateTask.targetVirtualViewY = targetVirtualViewY;
+			displayViewUpdateTask.targetReachedAction = targetReachedAction;
+			displayViewUpdateTask.progressiveCommitChunkSize = progressiveCommitChunkSize;
 			displayViewUpdateTask.screenWentDown = screenWentDown;
 			checkValidConstructionState(displayViewUpdateTask);
 			return displayViewUpdateTask;
 		}
 
 
-		private ArrayList<Point> buildPointsList() {
-			ArrayList<Point> cloneList = new ArrayList<>();
-			for (Point originalPoint : pointsList) {
-				Point pointClone = new Point(originalPoint);
-				cloneList.add(pointClone);
-			}
-			return cloneList;
-		}
-
-
 		private void checkValidConstructionState(DisplayViewUpdateTask displayViewUpdateTask) {
 			if (displayViewUpdateTask.toDisplayComponentRenderer == null) {
 				throw new IllegalStateException();
 			} else if (displayViewUpdateTask.displayedComponentsCache == null) {
 				throw new IllegalStateException();
+			} else if (displayViewUpdateTask.recycledComponentsPool == null) {
+				throw new IllegalStateException();
+			} else if (displayViewUpdateTask.asyncRowComponentsLoader == null) {
+				throw new IllegalStateException();
+			} else if (displayViewUpdateTask.supersededCondition == null) {
+				throw new IllegalStateException();
 			} else if (displayViewUpdateTask.displayerScroll == null) {
 				throw new IllegalStateException();
+			} else if (displayViewUpdateTask.rowGeometry == null) {
+				throw new IllegalStateException();
+			} else if (displayViewUpdateTask.toDisplayComponentRenderer instanceof ToDisplayCellRenderer 
+					&& displayViewUpdateTask.columnGeometry == null) {
+				throw new IllegalStateException();
 			} else if (!isScreenWentDownSet) {
 				throw new IllegalStateException();
 			}
@@ -0,0 +1,205 @@
+package mx.gob.cofepris.cos.deds.dynamicRowsLoader;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+
+/*
+ * A read-only row geometry kept in a file, which is mapped into memory rather than read, so
+ * opening it does not depend on the number of rows and only the pages of the rows that are
+ * looked up are ever loaded. The file holds a header, the height of every row and, every
+ * CHECKPOINT_INTERVAL rows, the offset of the row, so an offset only requires adding the
+ * heights since the previous checkpoint.
+ *
+ * Layout, in big-endian order: magic, format version, rows count and checkpoint interval, as
+ * ints; the total height, as a long; the heights, as ints; and, aligned to eight bytes, the
+ * checkpoints, as longs. Files bigger than a mapped buffer are mapped in several segments;
+ * since the values are aligned to their size, none of them crosses two segments.
+ */
+final class MappedRowGeometry implements RowGeometry {
+	private static final int MAGIC = 0x44524C47;
+	private static final int FORMAT_VERSION = 1;
+	private static final int CHECKPOINT_INTERVAL = 1024;
+	private static final int HEADER_SIZE = 24;
+	private static final int SEGMENT_BITS = 30;
+	private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+	private final MappedByteBuffer[] segments;
+	private final int size;
+	private final int checkpointInterval;
+	private final long totalHeight;
+	private final long checkpointsPosition;
+
+
+	private MappedRowGeometry(MappedByteBuffer[] segments, int size, int checkpointInterval, long totalHeight) {
+		this.segments = segments;
+		this.size = size;
+		this.checkpointInterval = checkpointInterval;
+		this.totalHeight = totalHeight;
+		this.checkpointsPosition = getCheckpointsPosition(size);
+	}
+
+
+	/*
+	 * Only the header is read; the mapping stays valid once the channel is closed.
+	 */
+	static MappedRowGeometry open(Path file) throws IOException {
+		try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long fileSize = fileChannel.size();
+			if (fileSize < HEADER_SIZE) {
+				throw new IOException("the file " + file + " is not a saved row geometry");
+			}
+			MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((fileSize + SEGMENT_MASK) >>> SEGMENT_BITS)];
+			for (int segmentIndex = 0 ; segmentIndex < segments.length ; segmentIndex++) {
+				long segmentPosition = (long) segmentIndex << SEGMENT_BITS;
+				segments[segmentIndex] = fileChannel.map(FileChannel.MapMode.READ_ONLY, segmentPosition,
+						Math.min(fileSize - segmentPosition, SEGMENT_MASK + 1));
+			}
+			int magic = segments[0].getInt(0);
+			int formatVersion = segments[0].getInt(4);
+			int size = segments[0].getInt(8);
+			int checkpointInterval = segments[0].getInt(12);
+			long totalHeight = segments[0].getLong(16);
+			if (magic != MAGIC || formatVersion != FORMAT_VERSION || size < 0 || checkpointInterval < 1
+					|| fileSize != getFileSize(size, checkpointInterval)) {
+				throw new IOException("the file " + file + " is not a saved row geometry");
+			}
+			return new MappedRowGeometry(segments, size, checkpointInterval, totalHeight);
+		}
+	}
+
+
+	/*
+	 * The heights are streamed in order, so the geometry is only read once; the checkpoints are
+	 * gathered meanwhile and written after the heights.
+	 */
+	static void write(RowGeometry rowGeometry, Path file) throws IOException {
+		int size = rowGeometry.size();
+		long[] checkpoints = new long[getCheckpointsCount(size, CHECKPOINT_INTERVAL)];
+		try (OutputStream fileStream = Files.newOutputStream(file);
+				DataOutputStream dataStream = new DataOutputStream(new BufferedOutputStream(fileStream, 1 << 16))) {
+			dataStream.writeInt(MAGIC);
+			dataStream.writeInt(FORMAT_VERSION);
+			dataStream.writeInt(size);
+			dataStream.writeInt(CHECKPOINT_INTERVAL);
+			dataStream.writeLong(rowGeometry.getTotalHeight());
+			long offset = 0;
+			for (int rowIndex = 0 ; rowIndex < size ; rowIndex++) {
+				if (rowIndex % CHECKPOINT_INTERVAL == 0) {
+					checkpoints[rowIndex / CHECKPOINT_INTERVAL] = offset;
+				}
+				int height = rowGeometry.getHeight(rowIndex);
+				dataStream.writeInt(height);
+				offset += height;
+			}
+			if ((size & 1) != 0) {
+				dataStream.writeInt(0);
+			}
+			for (long checkpoint : checkpoints) {
+				dataStream.writeLong(checkpoint);
+			}
+		}
+	}
+
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+
+	/*
+	 * The file can not change, so neither can the version.
+	 */
+	@Override
+	public long getVersion() {
+		return 0;
+	}
+
+
+	@Override
+	public int getHeight(int rowIndex) {
+		RowGeometryIndex.checkRowIndex(rowIndex, size);
+		return readHeight(rowIndex);
+	}
+
+
+	@Override
+	public long getOffset(int rowIndex) {
+		RowGeometryIndex.checkRowIndex(rowIndex, size);
+		int checkpointIndex = rowIndex / checkpointInterval;
+		long offset = readCheckpoint(checkpointIndex);
+		for (int precedingRow = checkpointIndex * checkpointInterval ; precedingRow < rowIndex ; precedingRow++) {
+			offset += readHeight(precedingRow);
+		}
+		return offset;
+	}
+
+
+	@Override
+	public long getTotalHeight() {
+		return totalHeight;
+	}
+
+
+	/*
+	 * A binary search over the checkpoints finds the last one not beyond the position, and the
+	 * heights that follow it are added until the position is reached; as in the index, the
+	 * rows of zero height are skipped.
+	 */
+	@Override
+	public int indexAtY(long y) {
+		if (size == 0) {return -1;}
+		y = Math.max(0, y);
+		int firstCheckpoint = 0;
+		int lastCheckpoint = getCheckpointsCount(size, checkpointInterval) - 1;
+		while (firstCheckpoint < lastCheckpoint) {
+			int middleCheckpoint = (firstCheckpoint + lastCheckpoint + 1) >>> 1;
+			if (readCheckpoint(middleCheckpoint) <= y) {
+				firstCheckpoint = middleCheckpoint;
+			} else {
+				lastCheckpoint = middleCheckpoint - 1;
+			}
+		}
+		int rowIndex = firstCheckpoint * checkpointInterval;
+		long rowEnd = readCheckpoint(firstCheckpoint) + readHeight(rowIndex);
+		while (rowEnd <= y && rowIndex < size - 1) {
+			rowIndex++;
+			rowEnd += readHeight(rowIndex);
+		}
+		return rowIndex;
+	}
+
+
+	private int readHeight(int rowIndex) {
+		long position = HEADER_SIZE + 4L * rowIndex;
+		return segments[(int) (position >>> SEGMENT_BITS)].getInt((int) (position & SEGMENT_MASK));
+	}
+
+
+	private long readCheckpoint(int checkpointIndex) {
+		long position = checkpointsPosition + 8L * checkpointIndex;
+		return segments[(int) (position >>> SEGMENT_BITS)].getLong((int) (position & SEGMENT_MASK));
+	}
+
+
+	private static int getCheckpointsCount(int size, int checkpointInterval) {
+		return Math.max(1, (int) (((long) size + checkpointInterval - 1) / checkpointInterval));
+	}
+
+
+	private static long getCheckpointsPosition(int size) {
+		return HEADER_SIZE + 8L * (((long) size + 1) / 2);
+	}
+
+
+	private static long getFileSize(int size, int checkpointInterval) {
+		return getCheckpointsPosition(size) + 8L * getCheckpointsCount(size, checkpointInterval);
+	}
+}
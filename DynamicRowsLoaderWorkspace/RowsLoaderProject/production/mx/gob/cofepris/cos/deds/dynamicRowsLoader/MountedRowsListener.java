@@ -0,0 +1,10 @@
+package mx.gob.cofepris.cos.deds.dynamicRowsLoader;
+
+import java.awt.Component;
+import java.util.Map;
+
+
+interface MountedRowsListener {
+
+	void rowsMounted(Map<Integer, Component> mountedRows);
+}
@@ -2,12 +2,25 @@ package mx.gob.cofepris.cos.deds.dynamicRowsLoader;
 
 import java.awt.Component;
 import java.awt.Container;
-import java.awt.Point;
+import java.awt.KeyboardFocusManager;
 import java.awt.Rectangle;
-import java.util.ArrayList;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.beans.PropertyChangeListener;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
 import java.util.function.Consumer;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ToLongFunction;
 import javax.swing.JScrollPane;
+import javax.swing.SwingConstants;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
 
 /**
@@ -35,14 +48,42 @@ import javax.swing.SwingUtilities;
  *
  */
 public class MultiRowViewRenditionManager {
+	private static final int DEFAULT_LIVE_SCROLL_FRAME_PERIOD = 16;
+	private static final int DEFAULT_SCROLL_ANIMATION_DURATION = 250;
 	private ToDisplayComponentRenderer toDisplayComponentRenderer;	
-	private ArrayList<Point> pointsList = new ArrayList<>();
-	private ArrayList<Integer> heightsList = new ArrayList<Integer>();
+	private RowGeometryIndex rowGeometryIndex = new RowGeometryIndex();
 	private ResizableViewPortScroll resizableViewPortScroll = new ResizableViewPortScroll();
-	private DisplayViewUpdateTaskScheduler displayViewUpdateTaskScheduler = 
-			new DisplayViewUpdateTaskScheduler(resizableViewPortScroll);
-	private int lastScreenPosition = 0;	
+	private DisplayViewUpdateTaskScheduler displayViewUpdateTaskScheduler;
+	private long lastScreenPosition = 0;	
+	private long visibleVirtualViewY = -1;
 	private Rectangle visibleScreenRectangle;
+	private OverscanPolicy overscanPolicy = OverscanPolicy.NONE;
+	private int progressiveCommitChunkSize = 0;
+	private int batchUpdateDepth = 0;
+	private boolean batchRequiresViewUpdate = false;
+	private boolean liveScrollEnabled = false;
+	private Timer liveScrollFrameTimer;
+	private Timer liveStampRowTimer;
+	private boolean measureOnRenderEnabled = false;
+	private BitSet declaredHeightRows = new BitSet();
+	/* The widths of the columns of a ToDisplayCellRenderer, kept as the heights of the rows */
+	private RowGeometryIndex columnGeometryIndex = new RowGeometryIndex();
+	private OverscanPolicy columnOverscanPolicy = OverscanPolicy.NONE;
+	private Rectangle visibleColumnsRectangle;
+	private int lastScreenX = 0;
+	private TileArrangement tileArrangement;
+	private MappedRowGeometry openedRowGeometry;
+	private int hoveredStampRow = -1;
+	private int focusedStampRow = -1;
+	private int liveStampRow = -1;
+	private PropertyChangeListener focusedStampRowListener;
+	private Timer scrollAnimationTimer;
+	private int scrollAnimationDuration = DEFAULT_SCROLL_ANIMATION_DURATION;
+	private long scrollAnimationStartY;
+	private long scrollAnimationTargetY;
+	private long scrollAnimationStartTime;
+	/* The position the view is moved to once its rows are built, or -1 */
+	private long scrollTargetFrameY = -1;
 
 
 	/**
@@ -55,96 +96,799 @@ public class MultiRowViewRenditionManager {
 	 * indicated 
 	 */
 	public MultiRowViewRenditionManager(ToDisplayComponentRenderer toDisplayComponentRenderer) {		
-		if (toDisplayComponentRenderer == null) {
+		this(toDisplayComponentRenderer, DisplayUpdateExecutionEngine.getSharedEngine());
+	}
+
+
+	/**
+	 * Initializes the Dynamic Rows Loader API, running its GUI update tasks on the given 
+	 * {@link DisplayUpdateExecutionEngine} instead of the shared one.
+	 * 
+	 * @param toDisplayComponentRenderer the component to return the concrete graphic elements 
+	 * that will be displayed at each position.
+	 * @param displayUpdateExecutionEngine the engine that runs the GUI update tasks; it can be
+	 * shared by several MultiRowViewRenditionManagers.
+	 * 
+	 * @throws IllegalArgumentException If any of the arguments is not indicated 
+	 */
+	public MultiRowViewRenditionManager(ToDisplayComponentRenderer toDisplayComponentRenderer, 
+			DisplayUpdateExecutionEngine displayUpdateExecutionEngine) {
+		if (toDisplayComponentRenderer == null || displayUpdateExecutionEngine == null) {
 			throw new IllegalArgumentException();
 		}	
 		this.toDisplayComponentRenderer = toDisplayComponentRenderer;
+		displayViewUpdateTaskScheduler = new DisplayViewUpdateTaskScheduler(resizableViewPortScroll, 
+				displayUpdateExecutionEngine);
+		liveScrollFrameTimer = new Timer(DEFAULT_LIVE_SCROLL_FRAME_PERIOD, actionEvent -> {
+			updateScreenOnVisibleDisplayChange(didScreenWentDown());
+		});
+		liveScrollFrameTimer.setRepeats(false);
+		liveStampRowTimer = new Timer(DEFAULT_LIVE_SCROLL_FRAME_PERIOD, actionEvent -> {
+			scheduleUpdateVisibleComponentsTask(true);
+		});
+		liveStampRowTimer.setRepeats(false);
+		scrollAnimationTimer = new Timer(DEFAULT_LIVE_SCROLL_FRAME_PERIOD, actionEvent -> {
+			requestNextScrollAnimationFrame();
+		});
+		installScrollAnimationInterruption();
+		resizableViewPortScroll.setMountedRowsListener(this::measureMountedRows);
 		resizableViewPortScroll.getVerticalScrollBar().addAdjustmentListener(adjustmentEvent -> {
-			if (!adjustmentEvent.getValueIsAdjusting()) {
+			if (resizableViewPortScroll.isReanchoringView()) {return;}
+			resizableViewPortScroll.followViewPosition(adjustmentEvent.getValueIsAdjusting());
+			if (resizableViewPortScroll.isMovingToTargetView()) {
+				recordVisibleDisplay();
+			} else if (liveScrollEnabled) {
+				requestLiveScrollFrameUpdate();
+			} else if (!adjustmentEvent.getValueIsAdjusting()) {
     			updateScreenOnVisibleDisplayChange(didScreenWentDown());
     		}
 		});
+		resizableViewPortScroll.getViewport().addComponentListener(new ComponentAdapter() {
+			@Override
+			public void componentResized(ComponentEvent componentEvent) {
+				rearrangeTilesOnResize();
+			}
+		});
+		if (toDisplayComponentRenderer instanceof StampRowRenderer) {
+			installStampRowsTracking();
+		}
+		resizableViewPortScroll.getHorizontalScrollBar().addAdjustmentListener(adjustmentEvent -> {
+			if (!(toDisplayComponentRenderer instanceof ToDisplayCellRenderer)) {return;}
+			if (liveScrollEnabled) {
+				requestLiveScrollFrameUpdate();
+			} else if (!adjustmentEvent.getValueIsAdjusting()) {
+				updateScreenOnVisibleDisplayChange(didScreenWentDown());
+			}
+		});
+	}
+
+
+	/*
+	 * The live row of a StampRowRenderer follows the mouse over the view, unless a row holds the
+	 * keyboard focus. Once the mouse is over the live row, the view stops receiving its events,
+	 * so the live row stays until the mouse reaches a painted row or leaves the view.
+	 */
+	private void installStampRowsTracking() {
+		resizableViewPortScroll.setStampRowRenderer((StampRowRenderer) toDisplayComponentRenderer);
+		Component componentsViewDisplay = resizableViewPortScroll.getViewport().getView();
+		MouseAdapter hoveredRowTracker = new MouseAdapter() {
+			@Override
+			public void mouseMoved(MouseEvent mouseEvent) {
+				setHoveredStampRow(indexAtY(mouseEvent.getY()));
+			}
+
+
+			@Override
+			public void mouseExited(MouseEvent mouseEvent) {
+				if (!componentsViewDisplay.contains(mouseEvent.getPoint())) {
+					setHoveredStampRow(-1);
+				}
+			}
+		};
+		componentsViewDisplay.addMouseListener(hoveredRowTracker);
+		componentsViewDisplay.addMouseMotionListener(hoveredRowTracker);
+		focusedStampRowListener = propertyChangeEvent -> {
+			focusedStampRow = resizableViewPortScroll.getMountedRowIndexOf((Component) propertyChangeEvent.getNewValue());
+			updateLiveStampRow();
+		};
+		KeyboardFocusManager.getCurrentKeyboardFocusManager().addPropertyChangeListener("permanentFocusOwner", 
+				focusedStampRowListener);
+	}
+
+
+	/*
+	 * The user takes over the scroll with the mouse wheel or the scroll bar, so the animation
+	 * stops where it is.
+	 */
+	private void installScrollAnimationInterruption() {
+		resizableViewPortScroll.addMouseWheelListener(mouseWheelEvent -> stopScrollAnimation());
+		resizableViewPortScroll.getVerticalScrollBar().addMouseListener(new MouseAdapter() {
+			@Override
+			public void mousePressed(MouseEvent mouseEvent) {
+				stopScrollAnimation();
+			}
+		});
+	}
+
+
+	private void setHoveredStampRow(int hoveredStampRow) {
+		this.hoveredStampRow = hoveredStampRow;
+		updateLiveStampRow();
+	}
+
+
+	/*
+	 * Only the affected row is swapped, right away on the event dispatch thread: the former live
+	 * row is unmounted and painted again as a stamp, and the new one is mounted if it is kept 
+	 * already. A single GUI update, once the live row stops changing, builds the new row if it 
+	 * is missing, and replaces any live row committed meanwhile by an update scheduled before.
+	 */
+	private void updateLiveStampRow() {
+		int updatedLiveStampRow = focusedStampRow >= 0 ? focusedStampRow : hoveredStampRow;
+		if (updatedLiveStampRow == liveStampRow) {return;}
+		liveStampRow = updatedLiveStampRow;
+		Component liveComponent = liveStampRow < 0 ? null : displayViewUpdateTaskScheduler.getKeptComponent(liveStampRow);
+		resizableViewPortScroll.mountLiveStampRow(liveStampRow, liveComponent);
+		liveStampRowTimer.restart();
+	}
+
+
+	/*
+	 * Every adjustment received while the frame timer is running is served by its single 
+	 * update, which reads the position of the scroll at the moment it fires.
+	 */
+	private void requestLiveScrollFrameUpdate() {
+		if (!liveScrollFrameTimer.isRunning()) {
+			liveScrollFrameTimer.start();
+		}
 	}
 
 	
 	private boolean didScreenWentDown() {		
-		int currentScreenPosition = resizableViewPortScroll.getViewport().getViewPosition().y;
-		int positionChange = currentScreenPosition - lastScreenPosition;
+		long currentScreenPosition = resizableViewPortScroll.getVirtualViewY();
+		long positionChange = currentScreenPosition - lastScreenPosition;
 		boolean screenWentDown = positionChange >= 0;
 		lastScreenPosition = currentScreenPosition;
 		return screenWentDown;
 	}
 
 
+	private boolean didScreenWentRight() {
+		int currentScreenX = resizableViewPortScroll.getViewport().getViewPosition().x;
+		boolean screenWentRight = currentScreenX >= lastScreenX;
+		lastScreenX = currentScreenX;
+		return screenWentRight;
+	}
+
+
 	/**
 	 * Sets the height that the i<sup>th</sup> GUI row would need in order to be completely 
 	 * displayed on the screen. In case the height of a previously registered row is being
 	 * updated, this method will update the positions reserved for each GUI row and will schedule
 	 * the update of the {@link JScrollPane} container the display appropriately each row. 
 	 * <br>
-	 * Internally, all the heights are stored in a heights-list.
+	 * Internally, all the heights are stored in a row-geometry index that keeps the accumulated
+	 * offsets of the rows, so updating a height only costs a logarithmic number of operations
+	 * regardless of the number of registered rows.
 	 *  
 	 * @param targetIndex the index of the i<sup>th</sup> GUI row, whose height will be declared
 	 * to the Dynamic Rows Loader API. The bigger value for this parameter is the size of the 
-	 * aforementioned heights-list; if it were the case, this would mean we are adding a value
-	 * at the end of the heights-list. If this parameter is bigger than the heights-list size 
+	 * aforementioned row-geometry index; if it were the case, this would mean we are adding a 
+	 * value at the end of the index. If this parameter is bigger than the index size 
 	 * (this is, a number bigger that the rows whose heights have been registered up until now) or
 	 * less than 0, this methods returns without performing any action.
 	 * @param height the height for the i<sup>th</sup> GUI row. If its value is less that zero
 	 * then it will be reset to zero.
+	 * 
+	 * @throws IllegalStateException if the rows were opened from a file (see 
+	 * {@link #openRowGeometry}).
 	 */
 	public void setPositionHeight(int targetIndex, int height) {
-		if (targetIndex < 0 || targetIndex > heightsList.size()) {return;}
-		int lastSetIndex = heightsList.size() - 1;
+		checkRowGeometryWritable();
+		if (targetIndex < 0 || targetIndex > rowGeometryIndex.size()) {return;}
 		height = height < 0 ? 0 : height;
-		if (targetIndex <= lastSetIndex && lastSetIndex >= 0) {
-			heightsList.set(targetIndex, height);
-			int nextIndexToUpdate = targetIndex + 1;
-			updatePointsPositions(nextIndexToUpdate);
-			scheduleUpdateVisibleComponentsTask(true);
+		if (measureOnRenderEnabled) {
+			declaredHeightRows.set(targetIndex);
+		}
+		if (targetIndex < rowGeometryIndex.size()) {
+			rowGeometryIndex.setHeight(targetIndex, height);
+			requestViewUpdateAfterHeightChange();
 		} else {
-			saveNewPointHeightReference(targetIndex, height);			
+			rowGeometryIndex.addHeight(height);
 		}
 	}
 
 
-	private void updatePointsPositions(int nextIndexToUpdate) {		
-		for (int indexToUpdate = nextIndexToUpdate ; indexToUpdate < pointsList.size() ; indexToUpdate++) {
-			int referenceIndex = indexToUpdate - 1;
-			int newYPosition = calculateYPositionFromFormerPoint(referenceIndex);				
-			Point newUpdatedPoint = new Point(0, newYPosition);			
-			pointsList.set(indexToUpdate, newUpdatedPoint);			
+	/**
+	 * Sets, in a single operation, the heights of a consecutive group of GUI rows starting at
+	 * the given index. Each height is handled as in {@link #setPositionHeight}, but the 
+	 * positions reserved for the rows are recalculated only once and, if any previously 
+	 * registered row changed its height, only one update of the {@link JScrollPane} is scheduled.
+	 * 
+	 * @param fromIndex the index of the first GUI row whose height is declared. It follows the 
+	 * same rules as the targetIndex of {@link #setPositionHeight}: if it is bigger than the 
+	 * number of registered rows or less than 0, this method returns without performing any action.
+	 * @param heights the heights of the GUI rows, the first one belonging to the row at 
+	 * fromIndex. Negative heights are reset to zero. If null, no action is performed.
+	 * 
+	 * @throws IllegalStateException if the rows were opened from a file (see 
+	 * {@link #openRowGeometry}).
+	 */
+	public void setPositionHeights(int fromIndex, int[] heights) {
+		checkRowGeometryWritable();
+		if (heights == null) {return;}
+		setPositionHeights(fromIndex, heights.length, rowIndex -> heights[rowIndex - fromIndex]);
+	}
+
+
+	/**
+	 * Sets, in a single operation, the heights of rowsCount consecutive GUI rows starting at the 
+	 * given index, asking the indicated supplier for each of them. Behaves as 
+	 * {@link #setPositionHeights(int, int[])}.
+	 * 
+	 * @param fromIndex the index of the first GUI row whose height is declared. If it is bigger
+	 * than the number of registered rows or less than 0, this method returns without performing
+	 * any action.
+	 * @param rowsCount the number of consecutive rows whose heights are declared.
+	 * @param heightSupplier the function that receives the index of a GUI row and returns its 
+	 * height. If null, no action is performed.
+	 * 
+	 * @throws IllegalStateException if the rows were opened from a file (see 
+	 * {@link #openRowGeometry}).
+	 */
+	public void setPositionHeights(int fromIndex, int rowsCount, IntUnaryOperator heightSupplier) {
+		checkRowGeometryWritable();
+		if (fromIndex < 0 || fromIndex > rowGeometryIndex.size() || heightSupplier == null) {return;}
+		beginBatchUpdate();
+		try {
+			for (int rowIndex = fromIndex ; rowIndex < fromIndex + rowsCount ; rowIndex++) {
+				setPositionHeight(rowIndex, heightSupplier.applyAsInt(rowIndex));
+			}
+		} finally {
+			endBatchUpdate();
 		}
 	}
-	
-	
-	private void saveNewPointHeightReference(int targetIndex, int height) {
-		int formerIndex = targetIndex - 1;
-		int yPosition = formerIndex < 0
-				? 0
-				: calculateYPositionFromFormerPoint(formerIndex);
-		Point newPoint = new Point(0, yPosition);	
-		heightsList.add(targetIndex, height);
-		pointsList.add(targetIndex, newPoint);
+
+
+	/**
+	 * Registers, at once, the given number of GUI rows with an estimated height, so the heights
+	 * of the rows do not need to be known up front. Its cost does not depend on the number of
+	 * rows, which makes it suitable for huge amounts of rows.
+	 * <br>
+	 * The actual height of each row is measured, through the preferred size of its Component, 
+	 * every time the row is displayed, and the positions of the rows are corrected accordingly. 
+	 * While correcting them, the row at the top of the visible portion of the scroll pane keeps
+	 * its position on the screen, so the content does not jump. Rows whose height is declared 
+	 * afterwards through {@link #setPositionHeight} are not measured.
+	 * <br>
+	 * This method replaces any row registered before: the rows that were built or displayed for
+	 * them are discarded, and the scroll pane returns to the first row, as with 
+	 * {@link #clearState}. As with new rows registered through setPositionHeight, the rows are 
+	 * displayed once {@link #scheduleUpdateVisibleComponentsTask} is called. When an 
+	 * {@link AsyncToDisplayComponentRenderer} is used, its placeholders are measured as well, 
+	 * so they should take the estimated height.
+	 * 
+	 * @param rowsCount the number of GUI rows. Negative values are reset to zero.
+	 * @param estimatedHeight the height assumed for every row until it is measured. Values less
+	 * than one are reset to one.
+	 */
+	public void setEstimatedRows(int rowsCount, int estimatedHeight) {
+		discardBuiltRows();
+		rowGeometryIndex.resetToEstimatedRows(Math.max(0, rowsCount), Math.max(1, estimatedHeight));
+		declaredHeightRows.clear();
+		measureOnRenderEnabled = true;
+		tileArrangement = null;
+		openedRowGeometry = null;
+	}
+
+
+	/**
+	 * Registers the given number of GUI rows, replacing any row registered before, and computes
+	 * the height of each of them through the given function. The function is evaluated for 
+	 * several rows at the same time, on the calling thread and on the threads of the common 
+	 * {@link java.util.concurrent.ForkJoinPool}, and the positions of the rows are then 
+	 * calculated in parallel too, so the registration of millions of rows whose heights depend 
+	 * on their content takes advantage of all the available processors.
+	 * <br>
+	 * The function must therefore be safe to call from several threads at once, and must not 
+	 * touch the GUI. The rows are registered as through {@link #setPositionHeight}, so they are
+	 * not measured when displayed; as with the rest of the rows, they are displayed once 
+	 * {@link #scheduleUpdateVisibleComponentsTask} is called. The rows that were built or 
+	 * displayed for the replaced ones are discarded, as in {@link #setEstimatedRows}.
+	 * 
+	 * @param rowsCount the number of GUI rows. Negative values are reset to zero.
+	 * @param heightFunction the function that receives the index of a GUI row and returns its 
+	 * height. Negative heights are reset to zero. If null, no action is performed.
+	 */
+	public void computePositionHeights(int rowsCount, IntUnaryOperator heightFunction) {
+		if (heightFunction == null) {return;}
+		int[] heights = new int[Math.max(0, rowsCount)];
+		Arrays.parallelSetAll(heights, rowIndex -> Math.max(0, heightFunction.applyAsInt(rowIndex)));
+		discardBuiltRows();
+		rowGeometryIndex.resetToHeights(heights);
+		declaredHeightRows.clear();
+		measureOnRenderEnabled = false;
+		tileArrangement = null;
+		openedRowGeometry = null;
+	}
+
+
+	/**
+	 * Saves the heights of the registered GUI rows to the given file, so they can be opened 
+	 * later through {@link #openRowGeometry} instead of being declared again. The file holds the
+	 * height of every row plus the offset of one row out of every 1024, in a compact binary form.
+	 * 
+	 * @param file the file to write; it is replaced if it exists.
+	 * 
+	 * @throws IOException if the file can not be written.
+	 */
+	public void saveRowGeometry(Path file) throws IOException {
+		MappedRowGeometry.write(openedRowGeometry != null ? openedRowGeometry : rowGeometryIndex.snapshot(), file);
+	}
+
+
+	/**
+	 * Registers the GUI rows saved in the given file by {@link #saveRowGeometry}, replacing any 
+	 * row registered before, as {@link #setEstimatedRows} does. The file is mapped into memory 
+	 * instead of being read, so opening it takes the same time regardless of the number of rows,
+	 * and only the parts of the file holding the rows that are looked up, such as the ones 
+	 * displayed on the screen, are ever loaded; the heap used does not grow with the number of 
+	 * rows.
+	 * <br>
+	 * The opened rows can not be changed: until {@link #clearState}, {@link #setEstimatedRows}, 
+	 * {@link #computePositionHeights} or {@link #setTileMode} is called, declaring a height or inserting, removing or moving rows
+	 * throws an IllegalStateException. As with the rest of the rows, the opened rows are 
+	 * displayed once {@link #scheduleUpdateVisibleComponentsTask} is called.
+	 * 
+	 * @param file the file written by saveRowGeometry.
+	 * 
+	 * @throws IOException if the file can not be read, or it does not hold a saved row geometry.
+	 */
+	public void openRowGeometry(Path file) throws IOException {
+		MappedRowGeometry mappedRowGeometry = MappedRowGeometry.open(file);
+		discardBuiltRows();
+		rowGeometryIndex.clear();
+		declaredHeightRows.clear();
+		measureOnRenderEnabled = false;
+		tileArrangement = null;
+		openedRowGeometry = mappedRowGeometry;
+	}
+
+
+	/*
+	 * The rows built for the replaced ones would otherwise be displayed at the indexes of 
+	 * other rows; the pending task is stopped, and the one it may be building can not be 
+	 * cached, since the cache generation changes.
+	 */
+	private void discardBuiltRows() {
+		stopScrollAnimation();
+		liveStampRowTimer.stop();
+		displayViewUpdateTaskScheduler.clearState();
+		visibleScreenRectangle = null;
+		visibleVirtualViewY = -1;
+		lastScreenPosition = 0;
+		hoveredStampRow = -1;
+		focusedStampRow = -1;
+		liveStampRow = -1;
+		clearComponentsViewDisplay();
 	}
 
 
-	private int calculateYPositionFromFormerPoint(int formerIndex) {
-		Point formerPoint = pointsList.get(formerIndex);
-		int formerYPosition = formerPoint.y;
-		int formerHeight = heightsList.get(formerIndex);
-		int yPosition = formerYPosition + formerHeight;	
-		return yPosition;
-	}	
+	private void checkRowGeometryWritable() {
+		if (openedRowGeometry != null) {
+			throw new IllegalStateException("the rows opened from a file can not be changed");
+		}
+	}
+
+
+	/*
+	 * The rows opened from a file take the place of the registered ones.
+	 */
+	private RowGeometry getRowGeometry() {
+		return openedRowGeometry != null ? openedRowGeometry : rowGeometryIndex;
+	}
+
+
+	/**
+	 * Displays the GUI components as a grid of tiles of the same size, wrapped into lines, 
+	 * instead of as a single column of rows. Each line holds as many tiles as fit in the width
+	 * of the visible portion of the scroll pane, and only the tiles of the lines that intersect
+	 * it, plus the overscan area (see {@link #setOverscanRows}, which counts lines in this mode),
+	 * are built. The {@link ToDisplayComponentRenderer} is asked for the tiles by their index,
+	 * as it is asked for the rows, and the built tiles are kept in the same way.
+	 * <br>
+	 * When the width of the scroll pane changes, the lines are computed again, with no cost 
+	 * proportional to the number of tiles; the built tiles are kept, and the tile at the top of
+	 * the visible portion of the scroll pane stays on the screen.
+	 * <br>
+	 * This method replaces any row or tile registered before: the rows and tiles that were built
+	 * or displayed are discarded, and the scroll pane returns to the first line, as in 
+	 * {@link #setEstimatedRows}. The tile mode lasts until {@link #clearState} or 
+	 * {@link #setEstimatedRows} is called. While it lasts, the heights of 
+	 * the lines are managed by the Dynamic Rows Loader API, so they must not be declared through
+	 * {@link #setPositionHeight}, and the rows can not be inserted, removed or moved. As with the
+	 * rows, the tiles are displayed once {@link #scheduleUpdateVisibleComponentsTask} is called.
+	 * 
+	 * @param tilesCount the number of tiles. Negative values are reset to zero.
+	 * @param tileWidth the width of every tile, including any space left between tiles. Values 
+	 * less than one are reset to one.
+	 * @param tileHeight the height of every tile, including any space left between lines. Values
+	 * less than one are reset to one.
+	 * 
+	 * @throws IllegalStateException if the renderer is a {@link ToDisplayCellRenderer} or a 
+	 * {@link StampRowRenderer}, or the MigLayout fallback is enabled (see 
+	 * {@link #setMigLayoutFallbackEnabled}).
+	 */
+	public void setTileMode(int tilesCount, int tileWidth, int tileHeight) {
+		if (toDisplayComponentRenderer instanceof ToDisplayCellRenderer) {
+			throw new IllegalStateException("the cells of a ToDisplayCellRenderer can not be displayed as tiles");
+		} else if (toDisplayComponentRenderer instanceof StampRowRenderer) {
+			throw new IllegalStateException("the rows of a StampRowRenderer can not be displayed as tiles");
+		} else if (resizableViewPortScroll.isMigLayoutFallbackEnabled()) {
+			throw new IllegalStateException("the tiles can not be positioned by the MigLayout fallback");
+		}
+		discardBuiltRows();
+		openedRowGeometry = null;
+		tileArrangement = TileArrangement.forViewportWidth(Math.max(0, tilesCount), Math.max(1, tileWidth), 
+				Math.max(1, tileHeight), resizableViewPortScroll.getViewport().getExtentSize().width);
+		rowGeometryIndex.resetToEstimatedRows(tileArrangement.getLinesCount(), tileArrangement.getTileHeight());
+		declaredHeightRows.clear();
+		measureOnRenderEnabled = false;
+	}
+
+
+	/*
+	 * Only the lines change, so the geometry is reset to them and the built tiles, whose 
+	 * indexes stay the same, are kept; the first tile of the top line is anchored.
+	 */
+	private void rearrangeTilesOnResize() {
+		if (tileArrangement == null) {return;}
+		TileArrangement resizedTileArrangement = tileArrangement.withViewportWidth(
+				resizableViewPortScroll.getViewport().getExtentSize().width);
+		if (resizedTileArrangement.getTilesPerLine() == tileArrangement.getTilesPerLine()) {return;}
+		long anchorY = resizableViewPortScroll.getVirtualViewY();
+		int anchorLine = rowGeometryIndex.indexAtY(anchorY);
+		long anchorDisplacement = anchorLine < 0 ? 0 : anchorY - rowGeometryIndex.getOffset(anchorLine);
+		int anchorTile = anchorLine < 0 ? 0 : tileArrangement.getFirstTileOfLine(anchorLine);
+		tileArrangement = resizedTileArrangement;
+		rowGeometryIndex.resetToEstimatedRows(tileArrangement.getLinesCount(), tileArrangement.getTileHeight());
+		resizableViewPortScroll.setTileArrangement(tileArrangement);
+		resizableViewPortScroll.setRowGeometry(rowGeometryIndex.snapshot());
+		if (anchorLine >= 0 && rowGeometryIndex.size() > 0) {
+			int anchoredLine = tileArrangement.getLineOfTile(anchorTile);
+			long anchoredY = rowGeometryIndex.getOffset(anchoredLine) 
+					+ Math.min(anchorDisplacement, rowGeometryIndex.getHeight(anchoredLine));
+			lastScreenPosition = anchoredY;
+			resizableViewPortScroll.scrollToVirtualY(anchoredY);
+		}
+		requestViewUpdateAfterHeightChange();
+	}
+
+
+	/**
+	 * Inserts new GUI rows, with the given heights, before the row at the given index. The rows
+	 * from that index onwards are moved down, keeping their heights and their already built 
+	 * Components, which are neither built again nor, if displayed, added again to the 
+	 * {@link JScrollPane}; the row at the top of the visible portion of the scroll pane keeps its
+	 * position on the screen.
+	 * <br>
+	 * This method, as well as {@link #removeRows} and {@link #moveRows}, only updates the 
+	 * positions and the Components kept by the Dynamic Rows Loader API: the information the 
+	 * {@link ToDisplayComponentRenderer} reads must already reflect the change when it is called,
+	 * on the event dispatch thread. Only the rows that follow the change are visited, and among 
+	 * them, only the ones whose height differs from the estimated height (see 
+	 * {@link #setEstimatedRows}), so the cost is proportional to them rather than to the total 
+	 * number of rows. They are not available in tile mode (see {@link #setTileMode}), nor for 
+	 * rows opened from a file (see {@link #openRowGeometry}), where they throw an 
+	 * IllegalStateException.
+	 * 
+	 * @param index the index the first inserted row will take. If it is equal to the number of 
+	 * registered rows, the rows are added at the end.
+	 * @param heights the heights of the inserted rows. Negative heights are reset to zero. If 
+	 * null, no action is performed.
+	 * 
+	 * @throws IndexOutOfBoundsException if the index is less than zero or bigger than the number
+	 * of registered rows.
+	 */
+	public void insertRows(int index, int[] heights) {
+		if (heights == null) {return;}
+		checkInsertionIndex(index);
+		int rowsCount = heights.length;
+		rearrangeRows(index, rowGeometryIndex.size() + rowsCount, 
+				rowIndex -> rowIndex < index ? rowIndex : rowIndex + rowsCount, index, () -> {
+			for (int position = 0 ; position < rowsCount ; position++) {
+				setPositionHeight(index + position, heights[position]);
+			}
+		});
+	}
+
+
+	/**
+	 * Inserts the given number of GUI rows before the row at the given index, as 
+	 * {@link #insertRows(int, int[])} does, but the new rows take the estimated height given to
+	 * {@link #setEstimatedRows}, and are measured when they are displayed.
+	 * 
+	 * @param index the index the first inserted row will take. If it is equal to the number of 
+	 * registered rows, the rows are added at the end.
+	 * @param rowsCount the number of inserted rows. If it is less than one, no action is 
+	 * performed.
+	 * 
+	 * @throws IllegalStateException if the rows were not registered through setEstimatedRows.
+	 * @throws IndexOutOfBoundsException if the index is less than zero or bigger than the number
+	 * of registered rows.
+	 */
+	public void insertEstimatedRows(int index, int rowsCount) {
+		if (!measureOnRenderEnabled) {
+			throw new IllegalStateException("the rows were not registered with an estimated height");
+		}
+		checkInsertionIndex(index);
+		if (rowsCount < 1) {return;}
+		rearrangeRows(index, rowGeometryIndex.size() + rowsCount, 
+				rowIndex -> rowIndex < index ? rowIndex : rowIndex + rowsCount, index, () -> {});
+	}
+
+
+	/**
+	 * Removes the GUI rows from fromIndex, inclusive, to toIndex, exclusive. The following rows
+	 * are moved up, keeping their heights and their already built Components, as described in 
+	 * {@link #insertRows(int, int[])}. The Components of the removed rows are discarded, 
+	 * notifying the {@link RowEvictionListener}, if any. If the row at the top of the visible 
+	 * portion of the scroll pane is removed, the row that takes its place is displayed at the 
+	 * top instead.
+	 * 
+	 * @param fromIndex the index of the first removed row.
+	 * @param toIndex the index following the last removed row.
+	 * 
+	 * @throws IndexOutOfBoundsException if fromIndex is less than zero, toIndex is bigger than the
+	 * number of registered rows, or fromIndex is bigger than toIndex.
+	 */
+	public void removeRows(int fromIndex, int toIndex) {
+		checkRowsRange(fromIndex, toIndex);
+		int rowsCount = toIndex - fromIndex;
+		if (rowsCount == 0) {return;}
+		rearrangeRows(fromIndex, rowGeometryIndex.size() - rowsCount, rowIndex -> rowIndex < fromIndex ? rowIndex 
+				: rowIndex < toIndex ? -1 : rowIndex - rowsCount, fromIndex, () -> {});
+	}
+
+
+	/**
+	 * Moves the GUI rows from fromIndex, inclusive, to toIndex, exclusive, so the first of them
+	 * takes the targetIndex, keeping their order. Every row keeps its height and its already 
+	 * built Component, as described in {@link #insertRows(int, int[])}. The row at the top of the
+	 * visible portion of the scroll pane is followed, even if it is one of the moved rows.
+	 * 
+	 * @param fromIndex the index of the first moved row.
+	 * @param toIndex the index following the last moved row.
+	 * @param targetIndex the index of the first moved row once they are moved. It must leave room
+	 * for all the moved rows, so it can not be bigger than the number of registered rows minus
+	 * the number of moved rows.
+	 * 
+	 * @throws IndexOutOfBoundsException if the range of moved rows is not valid, as in 
+	 * {@link #removeRows}, or the targetIndex is less than zero or does not leave room for the 
+	 * moved rows.
+	 */
+	public void moveRows(int fromIndex, int toIndex, int targetIndex) {
+		checkRowsRange(fromIndex, toIndex);
+		int rowsCount = toIndex - fromIndex;
+		if (targetIndex < 0 || targetIndex > rowGeometryIndex.size() - rowsCount) {
+			throw new IndexOutOfBoundsException("target index " + targetIndex + " out of range [0, " 
+					+ (rowGeometryIndex.size() - rowsCount) + "]");
+		}
+		if (rowsCount == 0 || targetIndex == fromIndex) {return;}
+		rearrangeRows(Math.min(fromIndex, targetIndex), rowGeometryIndex.size(), rowIndex -> {
+			if (rowIndex >= fromIndex && rowIndex < toIndex) {
+				return targetIndex + rowIndex - fromIndex;
+			}
+			int remainingIndex = rowIndex < fromIndex ? rowIndex : rowIndex - rowsCount;
+			return remainingIndex < targetIndex ? remainingIndex : remainingIndex + rowsCount;
+		}, fromIndex, () -> {});
+	}
+
+
+	private void checkInsertionIndex(int index) {
+		checkRowGeometryWritable();
+		if (index < 0 || index > rowGeometryIndex.size()) {
+			throw new IndexOutOfBoundsException("index " + index + " out of range [0, " + rowGeometryIndex.size() + "]");
+		}
+	}
+
+
+	private void checkRowsRange(int fromIndex, int toIndex) {
+		checkRowGeometryWritable();
+		if (fromIndex < 0 || toIndex > rowGeometryIndex.size() || fromIndex > toIndex) {
+			throw new IndexOutOfBoundsException("range [" + fromIndex + ", " + toIndex + ") out of range [0, " 
+					+ rowGeometryIndex.size() + ")");
+		}
+	}
+
+
+	/*
+	 * Every row from firstAffectedRow onwards goes to the index returned by the mapping, or is
+	 * removed if it returns a negative index. The geometry, the kept Components and the 
+	 * displayed rows follow the same mapping, so only the inserted rows remain to be built. The
+	 * top row of the view is anchored as in measureMountedRows; if it was removed, the row at 
+	 * removedAnchorIndex takes its place.
+	 */
+	private void rearrangeRows(int firstAffectedRow, int rowsCount, IntUnaryOperator destinationRowOf, 
+			int removedAnchorIndex, Runnable insertedRowsDeclaration) {
+		if (tileArrangement != null) {
+			throw new IllegalStateException("the lines of the tile mode can not be rearranged");
+		}
+		long anchorY = resizableViewPortScroll.getVirtualViewY();
+		int anchorIndex = rowGeometryIndex.indexAtY(anchorY);
+		long anchorDisplacement = anchorIndex < 0 ? 0 : anchorY - rowGeometryIndex.getOffset(anchorIndex);
+		beginBatchUpdate();
+		try {
+			rowGeometryIndex.rearrangeRows(firstAffectedRow, rowsCount, destinationRowOf);
+			declaredHeightRows = rearrangeRowFlags(declaredHeightRows, firstAffectedRow, destinationRowOf);
+			displayViewUpdateTaskScheduler.rearrangeRows(destinationRowOf);
+			hoveredStampRow = rearrangeStampRow(hoveredStampRow, firstAffectedRow, destinationRowOf);
+			focusedStampRow = rearrangeStampRow(focusedStampRow, firstAffectedRow, destinationRowOf);
+			liveStampRow = rearrangeStampRow(liveStampRow, firstAffectedRow, destinationRowOf);
+			resizableViewPortScroll.rearrangeMountedRows(destinationRowOf);
+			insertedRowsDeclaration.run();
+			batchRequiresViewUpdate = true;
+			if (anchorIndex >= 0 && rowsCount > 0) {
+				int anchoredIndex = anchorIndex < firstAffectedRow ? anchorIndex : destinationRowOf.applyAsInt(anchorIndex);
+				if (anchoredIndex < 0) {
+					anchoredIndex = Math.min(removedAnchorIndex, rowsCount - 1);
+					anchorDisplacement = 0;
+				}
+				resizableViewPortScroll.setRowGeometry(rowGeometryIndex.snapshot());
+				long anchoredY = rowGeometryIndex.getOffset(anchoredIndex) 
+						+ Math.min(anchorDisplacement, rowGeometryIndex.getHeight(anchoredIndex));
+				lastScreenPosition = anchoredY;
+				resizableViewPortScroll.scrollToVirtualY(anchoredY);
+			}
+		} finally {
+			endBatchUpdate();
+		}
+	}
+
+
+	private static int rearrangeStampRow(int stampRow, int firstAffectedRow, IntUnaryOperator destinationRowOf) {
+		return stampRow < firstAffectedRow ? stampRow : destinationRowOf.applyAsInt(stampRow);
+	}
+
+
+	private static BitSet rearrangeRowFlags(BitSet rowFlags, int firstAffectedRow, IntUnaryOperator destinationRowOf) {
+		BitSet rearrangedRowFlags = rowFlags.get(0, firstAffectedRow);
+		for (int rowIndex = rowFlags.nextSetBit(firstAffectedRow) ; rowIndex >= 0 ; rowIndex = rowFlags.nextSetBit(rowIndex + 1)) {
+			int destinationRow = destinationRowOf.applyAsInt(rowIndex);
+			if (destinationRow >= 0) {
+				rearrangedRowFlags.set(destinationRow);
+			}
+		}
+		return rearrangedRowFlags;
+	}
+
+
+	/*
+	 * Called on the event dispatch thread every time rows are added to the view. The view is
+	 * laid out with the corrected heights and moved so the anchor row stays in place.
+	 */
+	private void measureMountedRows(Map<Integer, Component> mountedRows) {
+		if (!measureOnRenderEnabled) {return;}
+		long anchorY = resizableViewPortScroll.getVirtualViewY();
+		int anchorIndex = rowGeometryIndex.indexAtY(anchorY);
+		if (anchorIndex < 0) {return;}
+		long anchorDisplacement = anchorY - rowGeometryIndex.getOffset(anchorIndex);
+		boolean isGeometryCorrected = false;
+		for (Map.Entry<Integer, Component> mountedRow : mountedRows.entrySet()) {
+			int rowIndex = mountedRow.getKey();
+			if (rowIndex >= rowGeometryIndex.size() || declaredHeightRows.get(rowIndex)) {continue;}
+			int measuredHeight = mountedRow.getValue().getPreferredSize().height;
+			if (measuredHeight != rowGeometryIndex.getHeight(rowIndex)) {
+				rowGeometryIndex.setHeight(rowIndex, measuredHeight);
+				isGeometryCorrected = true;
+			}
+		}
+		if (!isGeometryCorrected) {return;}
+		resizableViewPortScroll.setRowGeometry(rowGeometryIndex.snapshot());
+		long anchoredY = rowGeometryIndex.getOffset(anchorIndex) 
+				+ Math.min(anchorDisplacement, rowGeometryIndex.getHeight(anchorIndex));
+		lastScreenPosition = anchoredY;
+		resizableViewPortScroll.scrollToVirtualY(anchoredY);
+		requestViewUpdateAfterHeightChange();
+	}
+
+
+	/**
+	 * Starts a batch of height declarations. While a batch is open, the calls to 
+	 * {@link #setPositionHeight} only register the heights; the positions reserved for the rows
+	 * are recalculated and the update of the {@link JScrollPane} is scheduled once, when the 
+	 * batch is closed through {@link #endBatchUpdate}.
+	 * <br>
+	 * Batches can be nested; only the closing of the outermost batch has effect.
+	 */
+	public void beginBatchUpdate() {
+		if (batchUpdateDepth == 0) {
+			rowGeometryIndex.beginDeferredRebuild();
+		}
+		batchUpdateDepth++;
+	}
+
+
+	/**
+	 * Closes a batch of height declarations opened with {@link #beginBatchUpdate}. When the 
+	 * outermost batch is closed, the positions of the rows are recalculated and, if any 
+	 * previously registered row changed its height, exactly one update of the 
+	 * {@link JScrollPane} is scheduled.
+	 * 
+	 * @throws IllegalStateException if there is no open batch.
+	 */
+	public void endBatchUpdate() {
+		if (batchUpdateDepth == 0) {
+			throw new IllegalStateException("there is no batch update to end");
+		}
+		batchUpdateDepth--;
+		if (batchUpdateDepth == 0) {
+			rowGeometryIndex.endDeferredRebuild();
+			if (batchRequiresViewUpdate) {
+				batchRequiresViewUpdate = false;
+				scheduleUpdateVisibleComponentsTask(true);
+			}
+		}
+	}
+
+
+	private void requestViewUpdateAfterHeightChange() {
+		if (batchUpdateDepth > 0) {
+			batchRequiresViewUpdate = true;
+		} else {
+			scheduleUpdateVisibleComponentsTask(true);
+		}
+	}
+
+
+	/*
+	 * The view was moved by an update task that already built the rows of its new position, so
+	 * the move is only recorded, and the next scroll is compared against it.
+	 */
+	private void recordVisibleDisplay() {
+		didScreenWentDown();
+		doesDisplayRequireUpdate();
+		doesVirtualViewPositionRequireUpdate();
+		doVisibleColumnsRequireUpdate();
+	}
 
 
 	private void updateScreenOnVisibleDisplayChange(boolean screenWentDown) {		
-		if (doesDisplayRequireUpdate()) {
+		boolean isVirtualViewMoved = doesVirtualViewPositionRequireUpdate();
+		boolean areVisibleColumnsChanged = doVisibleColumnsRequireUpdate();
+		if (doesDisplayRequireUpdate() || isVirtualViewMoved || areVisibleColumnsChanged) {
 			scheduleUpdateVisibleComponentsTask(screenWentDown);		
 		}
 	}
+
+
+	/*
+	 * When the rows do not fit in the view, the view can stay still while the rows move under
+	 * it, so the virtual position is compared too.
+	 */
+	private boolean doesVirtualViewPositionRequireUpdate() {
+		long currentVirtualViewY = resizableViewPortScroll.getVirtualViewY();
+		boolean updateRequired = currentVirtualViewY != visibleVirtualViewY;
+		visibleVirtualViewY = currentVirtualViewY;
+		return updateRequired;
+	}
 	
 	
+	/*
+	 * The rows only compare the vertical edges of the visible rectangle; the cells of a 
+	 * ToDisplayCellRenderer must be updated as well when its horizontal edges change.
+	 */
+	private boolean doVisibleColumnsRequireUpdate() {
+		if (!(toDisplayComponentRenderer instanceof ToDisplayCellRenderer)) {return false;}
+		Rectangle currentVisibleRectangle = resizableViewPortScroll.getViewport().getViewRect();
+		boolean updateRequired = visibleColumnsRectangle == null 
+				|| visibleColumnsRectangle.x != currentVisibleRectangle.x 
+				|| visibleColumnsRectangle.width != currentVisibleRectangle.width;
+		visibleColumnsRectangle = currentVisibleRectangle;
+		return updateRequired;
+	}
+
+
 	private boolean doesDisplayRequireUpdate() {
 		boolean updateRequired = false;
 		Rectangle currentVisibleRectangle = resizableViewPortScroll.getViewport().getViewRect();
@@ -177,13 +921,17 @@ public class MultiRowViewRenditionManager {
 	 * and we want to display the correctly positioned analogous GUI rows. Second, after the height 
 	 * of one or more rows have updated its height and we need to visually reflect this fact.
 	 * <br>
-	 * Every time this method is called, a new {@link Thread}, that we will call 
-	 * row-update-thread, is created; it has the task of 
+	 * Every time this method is called, a task is handed to the 
+	 * {@link DisplayUpdateExecutionEngine} of this API; the thread that runs it, that we will call
+	 * row-update-thread, has the task of 
 	 * performing all calculations necessaries to update appropriately the GUI. This last task
-	 * is scheduled on the event dispatch thread at the end of the work of the row-update-thread.
+	 * is scheduled on the event dispatch thread, as a single step, at the end of the work of the 
+	 * row-update-thread (see {@link #setProgressiveCommitChunkSize} for the alternative).
 	 * <br>
-	 * When a new row-update-thread is started, any other thread of this type that could still
-	 * be active, is terminated. 
+	 * When a new update is requested, any update of this type that could still be active stops
+	 * at its next safe point, without being interrupted, and the rows it already built are 
+	 * reused by the newer one. Requests that were not started yet are coalesced into the newest
+	 * one. 
 	 * 
 	 * @param screenWentDown whether the JScrollPane was scrolled down. If true, the GUI row
 	 * components will be added from top to down; otherwise, they will be added from bottom to
@@ -192,11 +940,29 @@ public class MultiRowViewRenditionManager {
 	public void scheduleUpdateVisibleComponentsTask(boolean screenWentDown) {
 		displayViewUpdateTaskScheduler.getPreparedDisplayViewUpdateTaskBuilder()
 				.setToDisplayComponentRenderer(toDisplayComponentRenderer)  
-        		.setHeightsList(heightsList)
-        		.setPointsList(pointsList)
+        		.setRowGeometry(openedRowGeometry != null ? openedRowGeometry : rowGeometryIndex.snapshot())
+        		.setOverscanPolicy(overscanPolicy)
+        		.setProgressiveCommitChunkSize(progressiveCommitChunkSize)
         		.setScreenWentDown(screenWentDown) 
+        		.setColumnGeometry(columnGeometryIndex.snapshot())
+        		.setColumnOverscanPolicy(columnOverscanPolicy)
+        		.setScreenWentRight(didScreenWentRight())
+        		.setTileArrangement(tileArrangement)
+        		.setLiveRowIndex(liveStampRow)
+        		.setTargetViewPosition(scrollTargetFrameY, createScrollTargetReachedAction())
 				.callDisplayViewUpdateTask();
 	}
+
+
+	private Runnable createScrollTargetReachedAction() {
+		long targetFrameY = scrollTargetFrameY;
+		if (targetFrameY < 0) {return null;}
+		return () -> {
+			if (scrollTargetFrameY == targetFrameY) {
+				scrollTargetFrameY = -1;
+			}
+		};
+	}
 	
 	
 	/**
@@ -205,16 +971,64 @@ public class MultiRowViewRenditionManager {
 	 * cleared
 	 */
 	public void clearState() {
+		liveScrollFrameTimer.stop();
+		liveStampRowTimer.stop();
+		stopScrollAnimation();
 		resizableViewPortScroll.resetScrollSize();
 		displayViewUpdateTaskScheduler.clearState();
 		visibleScreenRectangle = null;
+		visibleVirtualViewY = -1;
 		lastScreenPosition = 0;
-		heightsList.clear();
-		pointsList.clear();			
+		visibleColumnsRectangle = null;
+		lastScreenX = 0;
+		tileArrangement = null;
+		openedRowGeometry = null;
+		hoveredStampRow = -1;
+		focusedStampRow = -1;
+		liveStampRow = -1;
+		rowGeometryIndex.clear();
+		measureOnRenderEnabled = false;
+		declaredHeightRows.clear();
+		batchRequiresViewUpdate = false;
 		clearComponentsViewDisplay();
 	}
 	
 	
+	/**
+	 * Releases the resources held by this Dynamic Rows Loader API: any pending GUI update is 
+	 * discarded, the built rows are removed from the JScrollPane and from memory (notifying the 
+	 * {@link RowEvictionListener}, if any) and the register of heights is cleared. Afterwards, 
+	 * the requests of GUI updates are ignored.
+	 * <br>
+	 * The threads of the {@link DisplayUpdateExecutionEngine} are not released, since the engine
+	 * can be shared; an engine created by the application can be stopped through 
+	 * {@link DisplayUpdateExecutionEngine#shutdown} once none of its managers is in use.
+	 */
+	public void dispose() {
+		liveScrollEnabled = false;
+		liveScrollFrameTimer.stop();
+		liveStampRowTimer.stop();
+		stopScrollAnimation();
+		if (focusedStampRowListener != null) {
+			KeyboardFocusManager.getCurrentKeyboardFocusManager().removePropertyChangeListener("permanentFocusOwner", 
+					focusedStampRowListener);
+			focusedStampRowListener = null;
+		}
+		displayViewUpdateTaskScheduler.dispose();
+		visibleScreenRectangle = null;
+		visibleVirtualViewY = -1;
+		visibleColumnsRectangle = null;
+		tileArrangement = null;
+		openedRowGeometry = null;
+		rowGeometryIndex.clear();
+		columnGeometryIndex.clear();
+		measureOnRenderEnabled = false;
+		declaredHeightRows.clear();
+		batchRequiresViewUpdate = false;
+		clearComponentsViewDisplay();
+	}
+
+
 	private void clearComponentsViewDisplay() {
 		SwingUtilities.invokeLater(new Runnable() {
 			@Override
@@ -243,6 +1057,10 @@ public class MultiRowViewRenditionManager {
 	 * this method is called, the i<sup>th</sup> GUI row is displayed in the visible portion of 
 	 * the scroll pane.
 	 * 
+	 * <br>
+	 * The view is moved right away, and the rows found there are built afterwards; see 
+	 * {@link #scrollToIndex} to build them before the view is moved.
+	 * 
 	 * @param componentIndex the index of the GUI row that need to be displayed in the visible 
 	 * portion of the scroll pane.
 	 * 
@@ -250,11 +1068,140 @@ public class MultiRowViewRenditionManager {
 	 * the number of registered rows minus one.
 	 */
 	public void moveViewPortToComonentAtIndex(int componentIndex) {		
-		Point location = pointsList.get(componentIndex);
-		resizableViewPortScroll.getVerticalScrollBar().setValue(location.y);
+		long location = getRowGeometry().getOffset(componentIndex);
+		resizableViewPortScroll.scrollToVirtualY(location);
+	}
+
+
+	/**
+	 * Moves the view port of the JScrollPane provided by the Dynamic Rows Loader API so the 
+	 * i<sup>th</sup> GUI row is displayed at the given side of the visible portion of the scroll
+	 * pane. Unlike {@link #moveViewPortToComonentAtIndex}, the view does not move right away: 
+	 * the rows that will be visible at the target position are built first, by a GUI update 
+	 * task (see {@link #scheduleUpdateVisibleComponentsTask}), and the view is moved in the same
+	 * step that displays them, so the first frame painted at the target position already shows 
+	 * its rows, instead of empty space.
+	 * <br>
+	 * When animated, the view travels to the target position along an eased path, which lasts
+	 * about {@link #setScrollAnimationDuration} milliseconds. Each frame of the path is 
+	 * prepared the same way, so no frame shows missing rows: if building the rows of a frame 
+	 * takes longer than a frame, the frames in between are skipped rather than displayed empty.
+	 * The rows of the overscan area (see {@link #setOverscanRows}) are built ahead along the
+	 * path. Spinning the mouse wheel or pressing the scroll bar stops the animation.
+	 * <br>
+	 * The positions near the end of the rows are limited so the view does not go beyond them; 
+	 * the row is then displayed below the requested side. The placeholders of an 
+	 * {@link AsyncToDisplayComponentRenderer} are displayed until their information arrives, as
+	 * usual. This method must be called on the event dispatch thread.
+	 * 
+	 * @param componentIndex the index of the GUI row to display; in tile mode (see 
+	 * {@link #setTileMode}), the index of the tile.
+	 * @param alignment the side of the visible portion of the scroll pane where the row is 
+	 * displayed: {@link SwingConstants#TOP}, {@link SwingConstants#CENTER} or 
+	 * {@link SwingConstants#BOTTOM}.
+	 * @param animate whether the view travels to the row along an animated path, instead of 
+	 * jumping to it.
+	 * 
+	 * @throws IndexOutOfBoundsException if the componentIndex is less than zero or bigger that
+	 * the number of registered rows minus one.
+	 * @throws IllegalArgumentException if the alignment is none of the accepted ones.
+	 */
+	public void scrollToIndex(int componentIndex, int alignment, boolean animate) {
+		long targetY = resolveScrollTargetY(componentIndex, alignment);
+		stopScrollAnimation();
+		long currentY = resizableViewPortScroll.getVirtualViewY();
+		if (!animate || targetY == currentY) {
+			scrollTargetFrameY = targetY;
+			scheduleUpdateVisibleComponentsTask(targetY >= currentY);
+			return;
+		}
+		scrollAnimationStartY = currentY;
+		scrollAnimationTargetY = targetY;
+		scrollAnimationStartTime = System.nanoTime();
+		scrollAnimationTimer.setDelay(liveScrollFrameTimer.getInitialDelay());
+		scrollAnimationTimer.start();
+		requestNextScrollAnimationFrame();
+	}
+
+
+	private long resolveScrollTargetY(int componentIndex, int alignment) {
+		RowGeometry rowGeometry = getRowGeometry();
+		int geometryIndex = componentIndex;
+		if (tileArrangement != null) {
+			RowGeometryIndex.checkRowIndex(componentIndex, tileArrangement.getTilesCount());
+			geometryIndex = tileArrangement.getLineOfTile(componentIndex);
+		}
+		long rowOffset = rowGeometry.getOffset(geometryIndex);
+		int rowHeight = rowGeometry.getHeight(geometryIndex);
+		int extentHeight = resizableViewPortScroll.getViewport().getExtentSize().height;
+		long targetY;
+		switch (alignment) {
+			case SwingConstants.TOP:
+				targetY = rowOffset;
+				break;
+			case SwingConstants.CENTER:
+				targetY = rowOffset - (extentHeight - rowHeight) / 2;
+				break;
+			case SwingConstants.BOTTOM:
+				targetY = rowOffset + rowHeight - extentHeight;
+				break;
+			default:
+				throw new IllegalArgumentException("the alignment must be SwingConstants.TOP, CENTER or BOTTOM");
+		}
+		long maximumY = Math.max(0, rowGeometry.getTotalHeight() - extentHeight);
+		return Math.max(0, Math.min(targetY, maximumY));
+	}
+
+
+	/*
+	 * A frame is only requested once the previous one reached the screen, so a slow frame makes
+	 * the animation skip positions instead of showing empty space. The position follows the 
+	 * elapsed time through a cubic ease-out.
+	 */
+	private void requestNextScrollAnimationFrame() {
+		if (scrollTargetFrameY >= 0) {return;}
+		double elapsedMillis = (System.nanoTime() - scrollAnimationStartTime) / 1_000_000.0;
+		double progress = Math.min(1, elapsedMillis / scrollAnimationDuration);
+		double easedProgress = 1 - Math.pow(1 - progress, 3);
+		long frameY = scrollAnimationStartY + Math.round((scrollAnimationTargetY - scrollAnimationStartY) * easedProgress);
+		if (progress >= 1) {
+			scrollAnimationTimer.stop();
+			frameY = scrollAnimationTargetY;
+		}
+		scrollTargetFrameY = frameY;
+		scheduleUpdateVisibleComponentsTask(scrollAnimationTargetY >= scrollAnimationStartY);
+	}
+
+
+	private void stopScrollAnimation() {
+		scrollAnimationTimer.stop();
+		scrollTargetFrameY = -1;
 	}
 	
 	
+	/**
+	 * Returns the index of the GUI row that occupies the given vertical position of the view 
+	 * displayed by the JScrollPane provided by the Dynamic Rows Loader API. The search is 
+	 * performed over the registered row heights in logarithmic time, so it is suitable for 
+	 * hit-testing and for synchronizing other scroll panes with this one.
+	 * 
+	 * <br>
+	 * The row found is the one whose span, from its position to its position plus its height, 
+	 * contains the given position; rows whose height is zero contain no position, so they are
+	 * skipped in favor of the next row with a height.
+	 * 
+	 * @param y the vertical position, in pixels, measured from the top of the view. Values less
+	 * than zero are taken as zero and values beyond the total height of the rows resolve to the
+	 * last one.
+	 * 
+	 * @return the index of the GUI row found at the given position, or -1 if no row height has
+	 * been registered.
+	 */
+	public int indexAtY(int y) {
+		return getRowGeometry().indexAtY(resizableViewPortScroll.toVirtualY(y));
+	}
+
+
 	/**
 	 * Traverses each of the {@link Component}s currently displayed on the screen and feeds
 	 * them to the indicated {@link Consumer}.
@@ -272,12 +1219,300 @@ public class MultiRowViewRenditionManager {
 	}
 
 
+	/**
+	 * Sets how many GUI rows, beyond the visible portion of the scroll pane, are built ahead of
+	 * time. After the visible rows are displayed, the rows of this overscan area are built in the
+	 * background at the lowest priority and kept, so that the next scroll step finds them ready.
+	 * The area is weighted toward the direction in which the scroll pane is moving. By default,
+	 * no overscan is used.
+	 * 
+	 * @param leadingRows the number of rows built on the side the scroll pane is moving to.
+	 * @param trailingRows the number of rows built on the side the scroll pane is moving away
+	 * from. Negative values, in both parameters, are reset to zero.
+	 */
+	public void setOverscanRows(int leadingRows, int trailingRows) {
+		overscanPolicy = OverscanPolicy.ofRows(leadingRows, trailingRows);
+	}
+
+
+	/**
+	 * Sets the overscan area as a number of pixels, beyond the visible portion of the scroll 
+	 * pane, instead of a number of rows. Every row that intersects this area is built ahead of 
+	 * time, as described in {@link #setOverscanRows}.
+	 * 
+	 * @param leadingPixels the pixels covered on the side the scroll pane is moving to.
+	 * @param trailingPixels the pixels covered on the side the scroll pane is moving away from.
+	 * Negative values, in both parameters, are reset to zero.
+	 */
+	public void setOverscanPixels(int leadingPixels, int trailingPixels) {
+		overscanPolicy = OverscanPolicy.ofPixels(leadingPixels, trailingPixels);
+	}
+
+
+	/**
+	 * Declares the widths of all the columns of a {@link ToDisplayCellRenderer}, replacing any 
+	 * width declared before. The widths are kept in a row-geometry index of their own, as the 
+	 * heights of the rows, and every GUI row takes the width of all the columns, but only the 
+	 * cells of the columns that intersect the visible portion of the scroll pane, plus the 
+	 * column overscan area (see {@link #setColumnOverscan}), are built and displayed. Scrolling
+	 * horizontally schedules the same GUI update task as scrolling vertically.
+	 * <br>
+	 * The columns are not used with any other kind of {@link ToDisplayComponentRenderer}. As 
+	 * with the heights of the rows, the change is displayed once 
+	 * {@link #scheduleUpdateVisibleComponentsTask} is called.
+	 * 
+	 * @param widths the widths of the columns, the first one belonging to the column 0. Negative
+	 * widths are reset to zero. If null, no action is performed.
+	 */
+	public void setColumnWidths(int[] widths) {
+		if (widths == null) {return;}
+		columnGeometryIndex.clear();
+		for (int width : widths) {
+			columnGeometryIndex.addHeight(Math.max(0, width));
+		}
+		visibleColumnsRectangle = null;
+	}
+
+
+	/**
+	 * Sets the width of the i<sup>th</sup> column of a {@link ToDisplayCellRenderer}, in the 
+	 * same way {@link #setPositionHeight} sets the height of a row: if the column was already 
+	 * declared, its width is updated and the update of the {@link JScrollPane} is scheduled; if
+	 * the index equals the number of declared columns, the column is added at the end.
+	 * 
+	 * @param columnIndex the index of the column. If it is bigger than the number of declared 
+	 * columns or less than 0, this method returns without performing any action.
+	 * @param width the width of the column. If its value is less that zero then it will be reset
+	 * to zero.
+	 */
+	public void setColumnWidth(int columnIndex, int width) {
+		if (columnIndex < 0 || columnIndex > columnGeometryIndex.size()) {return;}
+		width = width < 0 ? 0 : width;
+		if (columnIndex < columnGeometryIndex.size()) {
+			columnGeometryIndex.setHeight(columnIndex, width);
+			requestViewUpdateAfterHeightChange();
+		} else {
+			columnGeometryIndex.addHeight(width);
+		}
+	}
+
+
+	/**
+	 * Sets how many columns of a {@link ToDisplayCellRenderer}, beyond the visible portion of 
+	 * the scroll pane, have their cells built ahead of time; the area is weighted toward the 
+	 * direction in which the scroll pane is moving horizontally, as the rows' one described in 
+	 * {@link #setOverscanRows}. By default, no column overscan is used.
+	 * 
+	 * @param leadingColumns the number of columns built on the side the scroll pane is moving 
+	 * to.
+	 * @param trailingColumns the number of columns built on the side the scroll pane is moving 
+	 * away from. Negative values, in both parameters, are reset to zero.
+	 */
+	public void setColumnOverscan(int leadingColumns, int trailingColumns) {
+		columnOverscanPolicy = OverscanPolicy.ofRows(leadingColumns, trailingColumns);
+	}
+
+
+	/**
+	 * Sets whether the GUI rows that enter the visible portion of the scroll pane are displayed
+	 * progressively. By default, the row-update-thread builds every new row first and then 
+	 * displays all of them in a single step on the event dispatch thread, with one layout pass.
+	 * In progressive mode, the rows are displayed in blocks of the given size as soon as each
+	 * block is built, so the event dispatch thread can paint between blocks and the time spent
+	 * on it per block stays bounded.
+	 * 
+	 * @param rowsPerCommit the number of rows displayed in each step. A value of zero or less
+	 * disables the progressive mode.
+	 */
+	public void setProgressiveCommitChunkSize(int rowsPerCommit) {
+		progressiveCommitChunkSize = Math.max(0, rowsPerCommit);
+	}
+
+
+	/**
+	 * Sets whether the GUI rows are positioned by a {@link net.miginfocom.swing.MigLayout} 
+	 * instead of the default layout of the Dynamic Rows Loader API. The default layout places
+	 * each displayed row directly at the position reserved for it and reports the total height 
+	 * of all the rows as the size of the view, so its cost only depends on the number of 
+	 * displayed rows. The MigLayout alternative simulates the space of the rows that are not 
+	 * displayed with its insets, and it is kept for applications that depend on its behavior.
+	 * <br>
+	 * Changing this setting removes the displayed rows from the scroll pane; it is meant to be
+	 * called, on the event dispatch thread, before the rows are displayed.
+	 * 
+	 * @param migLayoutFallbackEnabled whether the MigLayout is used to position the rows.
+	 * 
+	 * @throws IllegalStateException if it is enabled in tile mode (see {@link #setTileMode}), or 
+	 * for a {@link StampRowRenderer}.
+	 */
+	public void setMigLayoutFallbackEnabled(boolean migLayoutFallbackEnabled) {
+		if (migLayoutFallbackEnabled && tileArrangement != null) {
+			throw new IllegalStateException("the tiles can not be positioned by the MigLayout fallback");
+		} else if (migLayoutFallbackEnabled && toDisplayComponentRenderer instanceof StampRowRenderer) {
+			throw new IllegalStateException("the rows of a StampRowRenderer can not be positioned by the MigLayout fallback");
+		}
+		resizableViewPortScroll.setMigLayoutFallbackEnabled(migLayoutFallbackEnabled);
+	}
+
+
+	/**
+	 * Sets the maximum height, in pixels, of the view that holds the rows. When the total height
+	 * of the rows exceeds it, which happens with hundreds of millions of rows since Swing can
+	 * not place Components beyond Integer.MAX_VALUE pixels, the view keeps this height and the
+	 * position of its scroll bar is scaled to the position among the rows. Scrolling by units,
+	 * by blocks or with the mouse wheel still moves the rows by exactly the scrolled amount, and
+	 * dragging the scroll bar reaches any row. By default, it is 16,777,216 pixels (2^24).
+	 * <br>
+	 * It only applies while the MigLayout fallback is disabled (see 
+	 * {@link #setMigLayoutFallbackEnabled}).
+	 * 
+	 * @param maximumViewHeight the maximum height of the view. Values less than one are reset to
+	 * one.
+	 */
+	public void setMaximumViewHeight(int maximumViewHeight) {
+		resizableViewPortScroll.setMaximumViewHeight(Math.max(1, maximumViewHeight));
+	}
+
+
+	/**
+	 * Sets whether the GUI rows are updated while the user is still dragging the scroll bar or
+	 * spinning the mouse wheel. By default, the rows are only updated once the scroll bar is 
+	 * released, so the user sees empty space during a drag. In live mode, the scrolling events 
+	 * are coalesced so at most one update is requested per display frame (see 
+	 * {@link #setLiveScrollFramePeriod}); combining it with 
+	 * {@link #setProgressiveCommitChunkSize} also bounds the time spent on the event dispatch 
+	 * thread per frame.
+	 * 
+	 * @param liveScrollEnabled whether the rows are updated during drags and wheel scrolling.
+	 */
+	public void setLiveScrollEnabled(boolean liveScrollEnabled) {
+		this.liveScrollEnabled = liveScrollEnabled;
+		if (!liveScrollEnabled) {
+			liveScrollFrameTimer.stop();
+		}
+	}
+
+
+	/**
+	 * Sets the minimum time between two updates requested by the live mode described in 
+	 * {@link #setLiveScrollEnabled}. By default, it is 16 milliseconds, about one frame of a 60Hz
+	 * display.
+	 * 
+	 * @param framePeriodMillis the period, in milliseconds. Values less than one are reset to one.
+	 */
+	public void setLiveScrollFramePeriod(int framePeriodMillis) {
+		liveScrollFrameTimer.setInitialDelay(Math.max(1, framePeriodMillis));
+	}
+
+
+	/**
+	 * Sets how long the animated scrolls of {@link #scrollToIndex} last. Their frames are 
+	 * requested at the period set by {@link #setLiveScrollFramePeriod}. By default, they last 
+	 * 250 milliseconds.
+	 * 
+	 * @param scrollAnimationDuration the duration, in milliseconds. Values less than one are 
+	 * reset to one.
+	 */
+	public void setScrollAnimationDuration(int scrollAnimationDuration) {
+		this.scrollAnimationDuration = Math.max(1, scrollAnimationDuration);
+	}
+
+
+	/**
+	 * Sets how many unused components of each type are kept for reuse when the 
+	 * {@link ToDisplayComponentRenderer} provided to this API is a 
+	 * {@link RecyclingComponentRenderer}. Components of rows that leave the screen beyond this
+	 * number are discarded. By default, up to 64 components of each type are kept.
+	 * 
+	 * @param maximumRecycledComponentsPerType the number of components kept per type. Values 
+	 * less than zero are reset to zero, which disables the reuse of components.
+	 */
+	public void setMaximumRecycledComponentsPerType(int maximumRecycledComponentsPerType) {
+		displayViewUpdateTaskScheduler.setMaximumRecycledComponentsPerType(maximumRecycledComponentsPerType);
+	}
+
+
+	/**
+	 * Sets how many built GUI rows, outside of the visible portion of the scroll pane and of the
+	 * overscan area, are kept in memory so that scrolling back to them does not require building
+	 * them again. When the limit is exceeded, the least recently used rows are discarded first.
+	 * By default, no such rows are kept.
+	 * 
+	 * @param maximumRetainedRows the number of rows kept. Values less than zero are reset to 
+	 * zero.
+	 */
+	public void setRowCacheCapacity(int maximumRetainedRows) {
+		displayViewUpdateTaskScheduler.setMaximumRetainedRows(maximumRetainedRows);
+	}
+
+
+	/**
+	 * Limits the estimated memory taken by the built GUI rows kept in memory, as described in 
+	 * {@link #setRowCacheCapacity}. The rows displayed or inside the overscan area are always 
+	 * kept, but they count toward the budget.
+	 * 
+	 * @param memoryBudget the maximum estimated memory, in bytes. A value less than zero removes
+	 * the limit.
+	 * @param memoryEstimator the function that estimates the memory taken by the Component of a
+	 * row. If null, an estimation based on the number of components in the row is used.
+	 */
+	public void setRowCacheMemoryBudget(long memoryBudget, ToLongFunction<Component> memoryEstimator) {
+		displayViewUpdateTaskScheduler.setRowCacheMemoryBudget(memoryBudget, memoryEstimator);
+	}
+
+
+	/**
+	 * Sets how much memory, in bytes, can be taken by the images of the rows that left the view.
+	 * Every row removed from the view is first captured into an image, which is painted in its
+	 * place as soon as the row becomes visible again, without waiting for its Component to be
+	 * built and mounted: after a jump, a drag of the scroll bar or a scroll back, the user sees
+	 * the rows immediately, while the update task retrieves the real Components as usual and
+	 * replaces the images with them.
+	 * <br>
+	 * The images of the rows whose size changed since they were captured are not painted. The
+	 * images are not captured for {@link StampRowRenderer}s, in tile mode, nor with the MigLayout
+	 * fallback. They are discarded by {@link #clearState}.
+	 * <br>
+	 * The default budget is zero, which disables the images.
+	 * 
+	 * @param memoryBudget the maximum bytes of images kept; the least recently used images are
+	 * discarded first. Each pixel is estimated to take four bytes.
+	 */
+	public void setRowSnapshotMemoryBudget(long memoryBudget) {
+		resizableViewPortScroll.setRowSnapshotMemoryBudget(memoryBudget);
+	}
+
+
+	/**
+	 * Sets whether the GUI rows discarded from the cache of built rows are kept through 
+	 * {@link java.lang.ref.SoftReference}s, so they can still be reused until the garbage 
+	 * collector needs their memory. Rows collected this way are not reported to the 
+	 * {@link RowEvictionListener}.
+	 * 
+	 * @param softReferenceDemotionEnabled whether the discarded rows are softly referenced.
+	 */
+	public void setSoftReferenceDemotionEnabled(boolean softReferenceDemotionEnabled) {
+		displayViewUpdateTaskScheduler.setSoftReferenceDemotionEnabled(softReferenceDemotionEnabled);
+	}
+
+
+	/**
+	 * Sets the component that will be notified every time a built GUI row is discarded from the
+	 * cache of built rows, including the rows discarded by {@link #clearState}.
+	 * 
+	 * @param rowEvictionListener the component to notify. If null, no one is notified.
+	 */
+	public void setRowEvictionListener(RowEvictionListener rowEvictionListener) {
+		displayViewUpdateTaskScheduler.setRowEvictionListener(rowEvictionListener);
+	}
+
+
 	/**
 	 * Adds a component that will be notified when the API is done updating the GUI. Such
 	 * events start every time the method {@link #updateScreenOnVisibleDisplayChange} is called.
 	 * <br>
 	 * This method only notifies interested parties in case the thread scheduled by the 
-	 * updateScreenOnVisibleDisplayChange method completes successfully. Threads cancelled before
+	 * updateScreenOnVisibleDisplayChange method completes successfully. Updates superseded before
 	 * completion will not derive in a notification to {@link DisplayUpdateTaskOverListener}s.
 	 * 
 	 * @param displayUpdateTaskOverListener the components that will be notified when every time
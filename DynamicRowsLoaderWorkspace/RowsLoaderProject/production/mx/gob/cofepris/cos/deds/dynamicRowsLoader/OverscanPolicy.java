@@ -0,0 +1,47 @@
+package mx.gob.cofepris.cos.deds.dynamicRowsLoader;
+
+
+final class OverscanPolicy {
+	static final OverscanPolicy NONE = new OverscanPolicy(0, 0, false);
+	private final int leadingExtent;
+	private final int trailingExtent;
+	private final boolean measuredInPixels;
+
+
+	private OverscanPolicy(int leadingExtent, int trailingExtent, boolean measuredInPixels) {
+		this.leadingExtent = Math.max(0, leadingExtent);
+		this.trailingExtent = Math.max(0, trailingExtent);
+		this.measuredInPixels = measuredInPixels;
+	}
+
+
+	static OverscanPolicy ofRows(int leadingRows, int trailingRows) {
+		return new OverscanPolicy(leadingRows, trailingRows, false);
+	}
+
+
+	static OverscanPolicy ofPixels(int leadingPixels, int trailingPixels) {
+		return new OverscanPolicy(leadingPixels, trailingPixels, true);
+	}
+
+
+	int resolveFirstIndex(RowGeometry rowGeometry, int initialVisibleIndex, boolean screenWentDown) {
+		int extent = screenWentDown ? trailingExtent : leadingExtent;
+		if (!measuredInPixels) {
+			return Math.max(0, initialVisibleIndex - extent);
+		}
+		long firstY = rowGeometry.getOffset(initialVisibleIndex) - extent;
+		return Math.min(initialVisibleIndex, rowGeometry.indexAtY(firstY));
+	}
+
+
+	int resolveLastIndex(RowGeometry rowGeometry, int finalVisibleIndex, boolean screenWentDown) {
+		int extent = screenWentDown ? leadingExtent : trailingExtent;
+		if (!measuredInPixels) {
+			return (int) Math.min(rowGeometry.size() - 1L, (long) finalVisibleIndex + extent);
+		}
+		long lastY = rowGeometry.getOffset(finalVisibleIndex) + rowGeometry.getHeight(finalVisibleIndex) 
+				- 1 + extent;
+		return Math.max(finalVisibleIndex, rowGeometry.indexAtY(lastY));
+	}
+}
@@ -0,0 +1,340 @@
+package mx.gob.cofepris.cos.deds.dynamicRowsLoader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the information of the rows, retrieved in pages of a fixed size from a
+ * {@link RowPageSource}. It is meant to be used by the renderer given to the
+ * {@link MultiRowViewRenditionManager}: a {@link RangeToDisplayComponentRenderer} can read the
+ * rows of a range through {@link #getRowsData}, and an {@link AsyncToDisplayComponentRenderer}
+ * can return the future of {@link #getRowDataAsync} from its loadRowData method.
+ * <br>
+ * Every page is loaded only once, even if its rows are requested concurrently, and only the
+ * most recently used pages are kept. Each time a page is requested, the page next to it, in
+ * the direction the requests are moving, is loaded in the background, so it is usually ready
+ * by the time the scroll pane reaches it.
+ * <br>
+ * The pages are loaded in the background by a small pool of daemon threads of their own, 
+ * rather than by the {@link DisplayUpdateExecutionEngine}, so slow sources never delay the 
+ * updates of the GUI. A thread that needs a page right away, through {@link #getRowsData}, 
+ * never waits for a page that is still waiting to be loaded in the background: it loads the
+ * page itself.
+ *
+ * @author kijimenez
+ *
+ * @param <T> the type of the information of a row.
+ */
+public final class PagedRowDataCache<T> {
+	private static final int DEFAULT_MAXIMUM_CACHED_PAGES = 8;
+	private static final int PAGE_LOADING_THREADS_COUNT = 2;
+	private static final int IDLE_PAGE_LOADER_KEEP_ALIVE_SECONDS = 30;
+	private RowPageSource<T> rowPageSource;
+	private int pageSize;
+	private int maximumCachedPages = DEFAULT_MAXIMUM_CACHED_PAGES;
+	private Executor loadingExecutor = SharedPageLoadingExecutor.EXECUTOR;
+	private boolean adjacentPagePrefetchEnabled = true;
+	private int lastRequestedPageIndex = -1;
+	private LinkedHashMap<Integer, CompletableFuture<List<T>>> cachedPagesMap = new LinkedHashMap<>(16, 0.75f, true);
+	private Set<CompletableFuture<List<T>>> claimedPageLoadings = Collections.newSetFromMap(new IdentityHashMap<>());
+
+
+	/**
+	 * Creates a cache of the pages of the given source.
+	 *
+	 * @param rowPageSource the source of the pages.
+	 * @param pageSize the number of rows of every page.
+	 *
+	 * @throws IllegalArgumentException if the rowPageSource is null or the pageSize is less than
+	 * one.
+	 */
+	public PagedRowDataCache(RowPageSource<T> rowPageSource, int pageSize) {
+		if (rowPageSource == null) {
+			throw new IllegalArgumentException("the rowPageSource cannot be null");
+		} else if (pageSize < 1) {
+			throw new IllegalArgumentException("the pageSize must be at least one");
+		}
+		this.rowPageSource = rowPageSource;
+		this.pageSize = pageSize;
+	}
+
+
+	/**
+	 * Returns the number of rows of every page.
+	 *
+	 * @return the page size given on construction.
+	 */
+	public int getPageSize() {
+		return pageSize;
+	}
+
+
+	/**
+	 * Sets how many pages are kept. When the limit is exceeded, the least recently used pages
+	 * are discarded first. By default, 8 pages are kept.
+	 *
+	 * @param maximumCachedPages the number of pages kept. Values less than one are reset to one.
+	 */
+	public synchronized void setMaximumCachedPages(int maximumCachedPages) {
+		this.maximumCachedPages = Math.max(1, maximumCachedPages);
+		evictExceedingPages();
+	}
+
+
+	/**
+	 * Sets the {@link Executor} that loads the prefetched pages and the pages requested through
+	 * {@link #getRowDataAsync}. By default, they are loaded by a small pool of daemon threads
+	 * shared by every PagedRowDataCache. The executor should not be the 
+	 * {@link DisplayUpdateExecutionEngine}, whose threads are meant for the updates of the GUI.
+	 *
+	 * @param loadingExecutor the executor that loads the pages in the background. If null, the
+	 * default one is used.
+	 */
+	public synchronized void setLoadingExecutor(Executor loadingExecutor) {
+		this.loadingExecutor = loadingExecutor != null ? loadingExecutor : SharedPageLoadingExecutor.EXECUTOR;
+	}
+
+
+	/**
+	 * Sets whether the page next to each requested page, in the direction the requests are
+	 * moving, is loaded in the background. It is enabled by default.
+	 *
+	 * @param adjacentPagePrefetchEnabled whether the adjacent pages are prefetched.
+	 */
+	public synchronized void setAdjacentPagePrefetchEnabled(boolean adjacentPagePrefetchEnabled) {
+		this.adjacentPagePrefetchEnabled = adjacentPagePrefetchEnabled;
+	}
+
+
+	/**
+	 * Returns the information of the row at the given index, loading its page, on the calling
+	 * thread, if it is not kept yet.
+	 *
+	 * @param rowIndex the index of the row.
+	 *
+	 * @return the information of the row.
+	 *
+	 * @throws IndexOutOfBoundsException if the rowIndex is less than zero or its page does not
+	 * hold it.
+	 * @throws RuntimeException the exception thrown by the {@link RowPageSource}, if it failed to
+	 * load the page.
+	 */
+	public T getRowData(int rowIndex) {
+		return getRowsData(rowIndex, rowIndex + 1).get(0);
+	}
+
+
+	/**
+	 * Returns the information of the rows from fromIndex, inclusive, to toIndex, exclusive,
+	 * loading, on the calling thread, the pages that are not kept yet.
+	 *
+	 * @param fromIndex the index of the first row.
+	 * @param toIndex the index following the last row.
+	 *
+	 * @return the information of the rows, in order.
+	 *
+	 * @throws IllegalArgumentException if toIndex is not bigger than fromIndex.
+	 * @throws IndexOutOfBoundsException if fromIndex is less than zero or a row of the range does
+	 * not exist in its page.
+	 * @throws RuntimeException the exception thrown by the {@link RowPageSource}, if it failed to
+	 * load a page.
+	 */
+	public List<T> getRowsData(int fromIndex, int toIndex) {
+		if (toIndex <= fromIndex) {
+			throw new IllegalArgumentException("the toIndex must be bigger than the fromIndex");
+		} else if (fromIndex < 0) {
+			throw new IndexOutOfBoundsException("row index " + fromIndex + " is negative");
+		}
+		int firstPageIndex = fromIndex / pageSize;
+		int lastPageIndex = (toIndex - 1) / pageSize;
+		List<T> rowsData = new ArrayList<>(toIndex - fromIndex);
+		for (int pageIndex = firstPageIndex ; pageIndex <= lastPageIndex ; pageIndex++) {
+			List<T> page = awaitPage(pageIndex, requestPage(pageIndex, true));
+			int pageFirstRowIndex = pageIndex * pageSize;
+			int fromPosition = Math.max(fromIndex, pageFirstRowIndex) - pageFirstRowIndex;
+			int toPosition = Math.min(toIndex, pageFirstRowIndex + pageSize) - pageFirstRowIndex;
+			if (toPosition > page.size()) {
+				throw new IndexOutOfBoundsException("row index " + (pageFirstRowIndex + page.size())
+						+ " does not exist in the page " + pageIndex);
+			}
+			rowsData.addAll(page.subList(fromPosition, toPosition));
+		}
+		prefetchAdjacentPage(firstPageIndex, lastPageIndex);
+		return rowsData;
+	}
+
+
+	/**
+	 * Returns a future with the information of the row at the given index. If its page is not
+	 * kept yet, it is loaded in the background, so the calling thread is never blocked.
+	 *
+	 * @param rowIndex the index of the row.
+	 *
+	 * @return the future that completes with the information of the row, or exceptionally if
+	 * the page could not be loaded or does not hold the row.
+	 *
+	 * @throws IndexOutOfBoundsException if the rowIndex is less than zero.
+	 */
+	public CompletableFuture<T> getRowDataAsync(int rowIndex) {
+		if (rowIndex < 0) {
+			throw new IndexOutOfBoundsException("row index " + rowIndex + " is negative");
+		}
+		int pageIndex = rowIndex / pageSize;
+		CompletableFuture<List<T>> pageFuture = requestPage(pageIndex, false);
+		prefetchAdjacentPage(pageIndex, pageIndex);
+		return pageFuture.thenApply(page -> page.get(rowIndex - pageIndex * pageSize));
+	}
+
+
+	/**
+	 * Discards every kept page, so the information of the rows is loaded again the next time it
+	 * is requested. It should be called whenever the information of the source changes.
+	 */
+	public synchronized void clear() {
+		cachedPagesMap.clear();
+		lastRequestedPageIndex = -1;
+	}
+
+
+	/*
+	 * The thread that registers a page is the one that loads it, or hands it to the loading
+	 * executor; every other request of the same page waits for the same future.
+	 */
+	private CompletableFuture<List<T>> requestPage(int pageIndex, boolean loadOnCallingThread) {
+		CompletableFuture<List<T>> pageFuture;
+		Executor pageLoadingExecutor;
+		synchronized (this) {
+			pageFuture = cachedPagesMap.get(pageIndex);
+			if (pageFuture != null) {return pageFuture;}
+			pageFuture = new CompletableFuture<>();
+			cachedPagesMap.put(pageIndex, pageFuture);
+			evictExceedingPages();
+			pageLoadingExecutor = loadingExecutor;
+		}
+		CompletableFuture<List<T>> registeredPageFuture = pageFuture;
+		if (loadOnCallingThread) {
+			loadPage(pageIndex, registeredPageFuture);
+		} else {
+			pageLoadingExecutor.execute(() -> loadPage(pageIndex, registeredPageFuture));
+		}
+		return registeredPageFuture;
+	}
+
+
+	/*
+	 * Whoever claims the page first loads it: either the loading executor or a thread that 
+	 * needs it right away; the other one returns without loading it again.
+	 */
+	private void loadPage(int pageIndex, CompletableFuture<List<T>> pageFuture) {
+		if (!claimPageLoading(pageFuture)) {return;}
+		try {
+			List<T> page = rowPageSource.loadPage(pageIndex, pageSize);
+			if (page == null) {
+				throw new IllegalStateException("the page source returned no page for the index " + pageIndex);
+			}
+			pageFuture.complete(page);
+		} catch (Throwable e) {
+			discardPage(pageIndex, pageFuture);
+			pageFuture.completeExceptionally(e);
+		} finally {
+			releasePageLoading(pageFuture);
+		}
+	}
+
+
+	private synchronized boolean claimPageLoading(CompletableFuture<List<T>> pageFuture) {
+		return !pageFuture.isDone() && claimedPageLoadings.add(pageFuture);
+	}
+
+
+	private synchronized void releasePageLoading(CompletableFuture<List<T>> pageFuture) {
+		claimedPageLoadings.remove(pageFuture);
+	}
+
+
+	private synchronized void discardPage(int pageIndex, CompletableFuture<List<T>> pageFuture) {
+		cachedPagesMap.remove(pageIndex, pageFuture);
+	}
+
+
+	private void prefetchAdjacentPage(int firstPageIndex, int lastPageIndex) {
+		int adjacentPageIndex;
+		synchronized (this) {
+			boolean requestsMovedUp = firstPageIndex < lastRequestedPageIndex;
+			boolean requestsMovedDown = lastPageIndex > lastRequestedPageIndex;
+			if (requestsMovedUp) {
+				adjacentPageIndex = firstPageIndex - 1;
+				lastRequestedPageIndex = firstPageIndex;
+			} else if (requestsMovedDown) {
+				adjacentPageIndex = lastPageIndex + 1;
+				lastRequestedPageIndex = lastPageIndex;
+			} else {
+				return;
+			}
+			if (!adjacentPagePrefetchEnabled || adjacentPageIndex < 0) {return;}
+		}
+		requestPage(adjacentPageIndex, false);
+	}
+
+
+	private void evictExceedingPages() {
+		Iterator<Integer> pageIndexIterator = cachedPagesMap.keySet().iterator();
+		while (cachedPagesMap.size() > maximumCachedPages && pageIndexIterator.hasNext()) {
+			pageIndexIterator.next();
+			pageIndexIterator.remove();
+		}
+	}
+
+
+	/*
+	 * A page still waiting for the loading executor is loaded on the calling thread, which 
+	 * could otherwise be waiting for a task queued behind itself; only a page that another 
+	 * thread is already loading is waited for.
+	 */
+	private List<T> awaitPage(int pageIndex, CompletableFuture<List<T>> pageFuture) {
+		loadPage(pageIndex, pageFuture);
+		try {
+			return pageFuture.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+
+	/*
+	 * Created on first use; its threads are released while there are no pages to load.
+	 */
+	private static class SharedPageLoadingExecutor {
+		private static final AtomicInteger threadsCount = new AtomicInteger();
+		private static final Executor EXECUTOR = createExecutor();
+
+
+		private static Executor createExecutor() {
+			ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(PAGE_LOADING_THREADS_COUNT, 
+					PAGE_LOADING_THREADS_COUNT, IDLE_PAGE_LOADER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<>(), runnable -> {
+						Thread loaderThread = new Thread(runnable, "dynamic-rows-loader-page-loader-" 
+								+ threadsCount.incrementAndGet());
+						loaderThread.setDaemon(true);
+						return loaderThread;
+					});
+			threadPoolExecutor.allowCoreThreadTimeOut(true);
+			return threadPoolExecutor;
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package mx.gob.cofepris.cos.deds.dynamicRowsLoader;
+
+import java.awt.Component;
+import java.util.List;
+
+/**
+ * A {@link ToDisplayComponentRenderer} that builds the Components of consecutive rows in a
+ * single call. When several rows need to be displayed, the Dynamic Rows Loader API groups the
+ * rows that were not built yet into ranges of consecutive indexes and requests each range at
+ * once, so the information of all of them can be retrieved with a single query.
+ * <br>
+ * A {@link PagedRowDataCache} can be used to retrieve the information of the rows in pages of
+ * a fixed size.
+ *
+ * @author kijimenez
+ *
+ */
+public interface RangeToDisplayComponentRenderer extends ToDisplayComponentRenderer {
+
+	/**
+	 * Returns the Components that must be displayed at the indexes from fromIndex, inclusive,
+	 * to toIndex, exclusive.
+	 *
+	 * @param fromIndex the index of the first row of the range.
+	 * @param toIndex the index following the last row of the range; it is always bigger than
+	 * fromIndex.
+	 *
+	 * @return the components of the rows, in order; one for each index of the range.
+	 */
+	public List<Component> retrieveComponents(int fromIndex, int toIndex);
+
+
+	/**
+	 * Returns the Component of a single row, through {@link #retrieveComponents}. The Dynamic
+	 * Rows Loader API does not call this method for this kind of renderer; it is provided so
+	 * the renderer can still be used wherever a plain {@link ToDisplayComponentRenderer} is
+	 * expected.
+	 */
+	@Override
+	public default Component retrieveComponent(int componentIndex) {
+		return retrieveComponents(componentIndex, componentIndex + 1).get(0);
+	}
+}
@@ -0,0 +1,90 @@
+package mx.gob.cofepris.cos.deds.dynamicRowsLoader;
+
+import java.awt.Component;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import javax.swing.SwingUtilities;
+
+
+/*
+ * A component only returns to the pool on the event dispatch thread, once it is no longer in
+ * the view, so the component that a row-update-thread takes from the pool, and binds, is not
+ * displayed anymore. The renderer is never called while the pool is locked, so neither thread
+ * waits for the renderer of the other one.
+ */
+class RecycledComponentsPool {
+	static final int DEFAULT_MAXIMUM_POOLED_PER_TYPE = 64;
+	private Map<Object, ArrayDeque<Component>> pooledComponentsMap = new HashMap<>();
+	private Map<Component, Object> boundComponentsTypesMap = new IdentityHashMap<>();
+	private int maximumPooledPerType = DEFAULT_MAXIMUM_POOLED_PER_TYPE;
+	private RecyclingComponentRenderer bindingRenderer;
+
+
+	Component obtainComponent(RecyclingComponentRenderer renderer, int componentIndex) {
+		Object componentType = renderer.getComponentType(componentIndex);
+		Component component = pollPooledComponent(renderer, componentType);
+		if (component == null) {
+			component = renderer.createComponent(componentType);
+		}
+		renderer.bind(component, componentIndex);
+		synchronized (this) {
+			boundComponentsTypesMap.put(component, componentType);
+		}
+		return component;
+	}
+
+
+	private synchronized Component pollPooledComponent(RecyclingComponentRenderer renderer, Object componentType) {
+		bindingRenderer = renderer;
+		ArrayDeque<Component> pooledComponents = pooledComponentsMap.get(componentType);
+		return pooledComponents == null ? null : pooledComponents.pollLast();
+	}
+
+
+	/*
+	 * A component that is still in the view when its turn comes is not reused, since it is
+	 * still displaying its row.
+	 */
+	void recycleComponent(Component component, int componentIndex) {
+		if (!SwingUtilities.isEventDispatchThread()) {
+			SwingUtilities.invokeLater(() -> recycleComponent(component, componentIndex));
+			return;
+		}
+		Object componentType;
+		RecyclingComponentRenderer unbindingRenderer;
+		synchronized (this) {
+			componentType = boundComponentsTypesMap.remove(component);
+			unbindingRenderer = bindingRenderer;
+		}
+		if (componentType == null || component.getParent() != null) {return;}
+		unbindingRenderer.unbind(component, componentIndex);
+		synchronized (this) {
+			ArrayDeque<Component> pooledComponents = pooledComponentsMap.get(componentType);
+			if (pooledComponents == null) {
+				pooledComponents = new ArrayDeque<>();
+				pooledComponentsMap.put(componentType, pooledComponents);
+			}
+			if (pooledComponents.size() < maximumPooledPerType) {
+				pooledComponents.addLast(component);
+			}
+		}
+	}
+
+
+	synchronized void setMaximumPooledPerType(int maximumPooledPerType) {
+		this.maximumPooledPerType = Math.max(0, maximumPooledPerType);
+		for (ArrayDeque<Component> pooledComponents : pooledComponentsMap.values()) {
+			while (pooledComponents.size() > this.maximumPooledPerType) {
+				pooledComponents.pollFirst();
+			}
+		}
+	}
+
+
+	synchronized void clear() {
+		pooledComponentsMap.clear();
+		boundComponentsTypesMap.clear();
+	}
+}
@@ -0,0 +1,84 @@
+package mx.gob.cofepris.cos.deds.dynamicRowsLoader;
+
+import java.awt.Component;
+
+/**
+ * A {@link ToDisplayComponentRenderer} whose components can be reused. Instead of building a
+ * new Component for every row that becomes visible, the Dynamic Rows Loader API keeps the 
+ * components of the rows that leave the screen in a pool, grouped by type, and binds them to
+ * the rows that enter the screen.
+ * <br>
+ * Components of the same type must be interchangeable: binding a component to a row must 
+ * leave it in the same state as if it had been built for that row.
+ * <br>
+ * As {@link #retrieveComponent} for other renderers, {@link #createComponent} and 
+ * {@link #bind} are called on the row-update-thread, never on the event dispatch thread; the 
+ * component they receive is not displayed at that moment. {@link #unbind} is called on the 
+ * event dispatch thread, once the component was removed from the scroll pane; a component 
+ * that is still displayed when its row is discarded is neither unbound nor reused.
+ * 
+ * @author kijimenez
+ *
+ */
+public interface RecyclingComponentRenderer extends ToDisplayComponentRenderer {
+
+	/**
+	 * Returns the type of the Component that displays the given row. Only components of the
+	 * same type are reused among them. By default, all rows share the same type.
+	 * 
+	 * @param componentIndex the index of the row.
+	 * 
+	 * @return an object that identifies the type of component; it is used as a key, so it must
+	 * implement equals and hashCode consistently.
+	 */
+	public default Object getComponentType(int componentIndex) {
+		return RecyclingComponentRenderer.class;
+	}
+
+
+	/**
+	 * Builds a new, unbound, Component of the given type. It is only called when the pool does
+	 * not hold any component of said type.
+	 * 
+	 * @param componentType the type returned by {@link #getComponentType} for the row that
+	 * will be displayed.
+	 * 
+	 * @return the new Component.
+	 */
+	public Component createComponent(Object componentType);
+
+
+	/**
+	 * Fills the given Component with the information of the row at the given index. It is 
+	 * called on the row-update-thread, and the component is not displayed when it is bound.
+	 * 
+	 * @param component a Component previously built by {@link #createComponent}, either new 
+	 * or taken from the pool.
+	 * @param componentIndex the index of the row that the component will display.
+	 */
+	public void bind(Component component, int componentIndex);
+
+
+	/**
+	 * Releases the information of the row at the given index from the given Component, before
+	 * the component is returned to the pool. It is called on the event dispatch thread, once the
+	 * component was removed from the scroll pane. By default, no action is performed.
+	 * 
+	 * @param component the component that is no longer displayed.
+	 * @param componentIndex the index of the row the component was displaying.
+	 */
+	public default void unbind(Component component, int componentIndex) {}
+
+
+	/**
+	 * Builds and binds a new Component for the row at the given index. The Dynamic Rows Loader
+	 * API does not call this method for this kind of renderer; it is provided so the renderer
+	 * can still be used wherever a plain {@link ToDisplayComponentRenderer} is expected.
+	 */
+	@Override
+	public default Component retrieveComponent(int componentIndex) {
+		Component component = createComponent(getComponentType(componentIndex));
+		bind(component, componentIndex);
+		return component;
+	}
+}
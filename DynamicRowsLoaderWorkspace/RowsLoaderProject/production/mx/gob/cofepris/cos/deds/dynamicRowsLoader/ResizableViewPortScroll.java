@@ -1,6 +1,11 @@
 package mx.gob.cofepris.cos.deds.dynamicRowsLoader;
 
 import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
 import javax.swing.*;
 import net.miginfocom.swing.*;
 
@@ -9,11 +14,34 @@ class ResizableViewPortScroll extends JScrollPane {
 	private static final long serialVersionUID = 1L;
 	private JPanel componentsViewDisplay;
 	private MigLayout migLayout = new MigLayout("insets 0, flowy, gap 0 0");
+	private VirtualRowsLayout virtualRowsLayout = new VirtualRowsLayout();
+	private VirtualViewCoordinates virtualViewCoordinates = new VirtualViewCoordinates();
+	private boolean isReanchoringView = false;
+	private boolean isMovingToTargetView = false;
+	private boolean migLayoutFallbackEnabled = false;
+	private ArrayList<Component> mountedComponents = new ArrayList<>();
+	private int mountedFirstIndex = 0;
+	private LinkedHashMap<Integer, Component> newlyMountedRows = new LinkedHashMap<>();
+	private MountedRowsListener mountedRowsListener;
+	private RowGeometry rowGeometry;
+	private StampRowRenderer stampRowRenderer;
+	private CellRendererPane stampRendererPane = new CellRendererPane();
+	private RowSnapshotImageCache rowSnapshotImageCache = new RowSnapshotImageCache();
+	private TileArrangement tileArrangement;
 
 
 	public ResizableViewPortScroll() {
-		componentsViewDisplay = new JPanel();
-		componentsViewDisplay.setLayout(migLayout);
+		componentsViewDisplay = new JPanel() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void paintComponent(Graphics graphics) {
+				super.paintComponent(graphics);
+				paintUnmountedRows(graphics);
+			}
+		};
+		virtualRowsLayout.setVirtualViewCoordinates(virtualViewCoordinates);
+		componentsViewDisplay.setLayout(virtualRowsLayout);
 		this.setViewportView(componentsViewDisplay);
 		this.getVerticalScrollBar().setUnitIncrement(25);
 		this.getHorizontalScrollBar().setUnitIncrement(50);
@@ -23,34 +51,359 @@ class ResizableViewPortScroll extends JScrollPane {
 	public void resetScrollSize() {	
 		this.getVerticalScrollBar().setValue(0);		
 		componentsViewDisplay.removeAll();
+		mountedComponents.clear();
 		componentsViewDisplay.revalidate();	
 		this.revalidate();
 		migLayout = new MigLayout("insets 0, flowy, gap 0 0");
-		componentsViewDisplay.setLayout(migLayout);
+		virtualRowsLayout = new VirtualRowsLayout();
+		virtualViewCoordinates.reset();
+		rowGeometry = null;
+		rowSnapshotImageCache.clear();
+		virtualRowsLayout.setVirtualViewCoordinates(virtualViewCoordinates);
+		componentsViewDisplay.setLayout(migLayoutFallbackEnabled ? migLayout : virtualRowsLayout);
 	}
 
-	
-	public void clearComponentsViewDisplay() {
-		componentsViewDisplay.removeAll();
-		setInicialAndFinalSpaceAdjustHeight(componentsViewDisplay.getHeight(), 0);
+
+	public void setMigLayoutFallbackEnabled(boolean migLayoutFallbackEnabled) {
+		if (this.migLayoutFallbackEnabled == migLayoutFallbackEnabled) {return;}
+		this.migLayoutFallbackEnabled = migLayoutFallbackEnabled;
+		resetScrollSize();
+	}
+
+
+	public boolean isMigLayoutFallbackEnabled() {
+		return migLayoutFallbackEnabled;
+	}
+
+
+	public void setRowGeometry(RowGeometry rowGeometry) {
+		this.rowGeometry = rowGeometry;
+		virtualRowsLayout.setRowGeometry(rowGeometry);
+		virtualViewCoordinates.setRowGeometry(rowGeometry);
+	}
+
+
+	/*
+	 * The renderers of the stamps are placed under the scroll pane itself, since the children of
+	 * the view must all be mounted rows.
+	 */
+	public void setStampRowRenderer(StampRowRenderer stampRowRenderer) {
+		this.stampRowRenderer = stampRowRenderer;
+		if (stampRendererPane.getParent() == null) {
+			this.add(stampRendererPane);
+		}
+		componentsViewDisplay.repaint();
+	}
+
+
+	/*
+	 * Returns the index of the mounted row that holds the given component, or -1 if it is not
+	 * inside any mounted row.
+	 */
+	public int getMountedRowIndexOf(Component component) {
+		while (component != null && component.getParent() != componentsViewDisplay) {
+			component = component.getParent();
+		}
+		int position = component == null ? -1 : mountedComponents.indexOf(component);
+		return position < 0 ? -1 : mountedFirstIndex + position;
+	}
+
+
+	public void setRowSnapshotMemoryBudget(long memoryBudget) {
+		rowSnapshotImageCache.setMemoryBudget(memoryBudget);
+	}
+
+
+	public void setTileArrangement(TileArrangement tileArrangement) {
+		this.tileArrangement = tileArrangement;
+		virtualRowsLayout.setTileArrangement(tileArrangement);
+	}
+
+
+	public void setMaximumViewHeight(int maximumViewHeight) {
+		virtualViewCoordinates.setMaximumPhysicalHeight(maximumViewHeight);
+		componentsViewDisplay.revalidate();
+	}
+
+
+	/*
+	 * The position of the top of the viewport among the rows, which only differs from the 
+	 * position of the view when the rows do not fit in the maximum height of the view.
+	 */
+	public long getVirtualViewY() {
+		if (migLayoutFallbackEnabled || !virtualViewCoordinates.isScaled()) {
+			return this.getViewport().getViewPosition().y;
+		}
+		return virtualViewCoordinates.getAnchoredVirtualY();
+	}
+
+
+	public long toVirtualY(int viewY) {
+		return migLayoutFallbackEnabled ? viewY : virtualViewCoordinates.toVirtualY(viewY);
+	}
+
+
+	public boolean isReanchoringView() {
+		return isReanchoringView;
+	}
+
+
+	public boolean isMovingToTargetView() {
+		return isMovingToTargetView;
+	}
+
+
+	/*
+	 * Must be called every time the view position changes. The rows are laid out again if the
+	 * virtual origin moved, and the view is moved if it must be re-anchored.
+	 */
+	public void followViewPosition(boolean isDragging) {
+		if (migLayoutFallbackEnabled) {return;}
+		long formerVirtualOrigin = virtualViewCoordinates.getVirtualOrigin();
+		int viewY = this.getViewport().getViewPosition().y;
+		int anchoredViewY = virtualViewCoordinates.followPhysicalY(viewY, this.getViewport().getExtentSize().height, 
+				isDragging);
+		if (formerVirtualOrigin != virtualViewCoordinates.getVirtualOrigin()) {
+			componentsViewDisplay.revalidate();
+		}
+		if (anchoredViewY != viewY) {
+			isReanchoringView = true;
+			try {
+				this.getViewport().setViewPosition(new Point(this.getViewport().getViewPosition().x, anchoredViewY));
+			} finally {
+				isReanchoringView = false;
+			}
+		}
+	}
+
+	public void setMountedRowsListener(MountedRowsListener mountedRowsListener) {
+		this.mountedRowsListener = mountedRowsListener;
 	}
 
 
+	/*
+	 * Lays out the view right away, so it takes the size of the current geometry before the
+	 * view position is moved.
+	 */
+	public void scrollToVirtualY(long virtualY) {
+		componentsViewDisplay.revalidate();
+		this.validate();
+		int viewY = migLayoutFallbackEnabled 
+				? (int) Math.max(0, Math.min(virtualY, Integer.MAX_VALUE))
+				: virtualViewCoordinates.anchorVirtualY(virtualY, this.getViewport().getExtentSize().height);
+		componentsViewDisplay.revalidate();
+		this.getVerticalScrollBar().setValue(viewY);
+	}
+
+
+	/*
+	 * Moves the view to a position whose rows are already mounted; while it moves, the listeners
+	 * of the scroll bar can tell that the move does not require another update.
+	 */
+	public void moveToTargetVirtualY(long virtualY) {
+		isMovingToTargetView = true;
+		try {
+			scrollToVirtualY(virtualY);
+		} finally {
+			isMovingToTargetView = false;
+		}
+	}
+
+	
 	public void setInicialAndFinalSpaceAdjustHeight(int initialHeight, int finalHeight) {		
+		if (!migLayoutFallbackEnabled) {return;}
 		String constraints = (String) migLayout.getLayoutConstraints();
 		constraints = constraints.replaceFirst("insets.*?,", "insets " + initialHeight + " 0 " + finalHeight + " 0,");
 		migLayout.setLayoutConstraints(constraints);		
 	}
 	
 	
-	public void addComponentToViewDisplay(Component targetComponent, boolean addToEnd) {
-		Component[] addedComponentsArray = componentsViewDisplay.getComponents();
-		componentsViewDisplay.removeAll();
-		if (!addToEnd) {componentsViewDisplay.add(targetComponent);}
-		for (Component componentToAdd : addedComponentsArray) {
-			componentsViewDisplay.add(componentToAdd);
+	/*
+	 * The displayed components always are the rows from mountedFirstIndex onwards, in order, 
+	 * so moving to a new range only requires removing and adding the rows at the edges.
+	 */
+	public void reconcileViewDisplay(int firstRowIndex, List<Component> targetComponents) {
+		int lastRowIndex = firstRowIndex + targetComponents.size() - 1;
+		if (mountedComponents.isEmpty() || lastRowIndex < mountedFirstIndex || firstRowIndex > getMountedLastIndex()) {
+			for (int position = 0 ; position < mountedComponents.size() ; position++) {
+				captureMountedRow(position);
+			}
+			componentsViewDisplay.removeAll();
+			mountedComponents.clear();
+			mountedFirstIndex = firstRowIndex;
+		}
+		while (!mountedComponents.isEmpty() && mountedFirstIndex < firstRowIndex) {
+			captureMountedRow(0);
+			componentsViewDisplay.remove(0);
+			mountedComponents.remove(0);
+			mountedFirstIndex++;
+		}
+		while (!mountedComponents.isEmpty() && getMountedLastIndex() > lastRowIndex) {
+			captureMountedRow(mountedComponents.size() - 1);
+			componentsViewDisplay.remove(mountedComponents.size() - 1);
+			mountedComponents.remove(mountedComponents.size() - 1);
+		}
+		if (mountedComponents.isEmpty()) {
+			mountedFirstIndex = firstRowIndex;
+		}
+		for (int position = 0 ; position < mountedComponents.size() ; position++) {
+			Component targetComponent = targetComponents.get(mountedFirstIndex - firstRowIndex + position);
+			if (mountedComponents.get(position) != targetComponent) {
+				componentsViewDisplay.remove(position);
+				mountedComponents.remove(position);
+				mountComponent(targetComponent, mountedFirstIndex + position, position);
+			}
 		}
-		if (addToEnd) {componentsViewDisplay.add(targetComponent);}
+		while (mountedFirstIndex > firstRowIndex) {
+			mountedFirstIndex--;
+			mountComponent(targetComponents.get(mountedFirstIndex - firstRowIndex), mountedFirstIndex, 0);
+		}
+		while (getMountedLastIndex() < lastRowIndex) {
+			int rowIndex = getMountedLastIndex() + 1;
+			mountComponent(targetComponents.get(rowIndex - firstRowIndex), rowIndex, mountedComponents.size());
+		}
+		notifyNewlyMountedRows();
+	}
+
+
+	/*
+	 * Keeps mounted, under their new indexes, the displayed rows that stay consecutive after the
+	 * rows are rearranged, so they are not added again; the remaining ones are removed, and the
+	 * next update mounts whatever is missing.
+	 */
+	public void rearrangeMountedRows(IntUnaryOperator destinationRowOf) {
+		rowSnapshotImageCache.rearrangeRows(destinationRowOf);
+		ArrayList<Component> keptComponents = new ArrayList<>();
+		int keptFirstIndex = -1;
+		for (int position = 0 ; position < mountedComponents.size() ; position++) {
+			int destinationRow = destinationRowOf.applyAsInt(mountedFirstIndex + position);
+			if (destinationRow < 0) {continue;}
+			if (keptFirstIndex < 0) {
+				keptFirstIndex = destinationRow;
+			} else if (destinationRow != keptFirstIndex + keptComponents.size()) {
+				break;
+			}
+			Component mountedComponent = mountedComponents.get(position);
+			keptComponents.add(mountedComponent);
+			virtualRowsLayout.setRowIndex(mountedComponent, destinationRow);
+		}
+		for (Component mountedComponent : mountedComponents) {
+			if (!keptComponents.contains(mountedComponent)) {
+				componentsViewDisplay.remove(mountedComponent);
+			}
+		}
+		mountedComponents = keptComponents;
+		mountedFirstIndex = Math.max(0, keptFirstIndex);
+		newlyMountedRows.clear();
+		componentsViewDisplay.revalidate();
+	}
+
+
+	/*
+	 * The live row of a stamp renderer is the only mounted row, so it is swapped on its own; a 
+	 * null component only unmounts the former one. Until a first update set the geometry, there
+	 * is nowhere to place the row, so it is not mounted and false is returned.
+	 */
+	public boolean mountLiveStampRow(int rowIndex, Component liveComponent) {
+		if (liveComponent != null && rowGeometry == null) {return false;}
+		List<Component> targetComponents = new ArrayList<>();
+		if (liveComponent != null) {
+			targetComponents.add(liveComponent);
+		}
+		reconcileViewDisplay(liveComponent != null ? rowIndex : 0, targetComponents);
+		componentsViewDisplay.revalidate();
+		componentsViewDisplay.repaint();
+		return true;
+	}
+
+
+	public boolean replaceMountedComponent(int rowIndex, Component expectedComponent, Component component) {
+		int position = rowIndex - mountedFirstIndex;
+		if (position < 0 || position >= mountedComponents.size() 
+				|| mountedComponents.get(position) != expectedComponent) {return false;}
+		componentsViewDisplay.remove(position);
+		mountedComponents.remove(position);
+		mountComponent(component, rowIndex, position);
+		notifyNewlyMountedRows();
+		return true;
+	}
+
+
+	private void mountComponent(Component targetComponent, int rowIndex, int position) {
+		Object constraints = migLayoutFallbackEnabled ? null : rowIndex;
+		componentsViewDisplay.add(targetComponent, constraints, position);
+		mountedComponents.add(position, targetComponent);
+		newlyMountedRows.put(rowIndex, targetComponent);
+	}
+
+
+	private void notifyNewlyMountedRows() {
+		if (newlyMountedRows.isEmpty()) {return;}
+		LinkedHashMap<Integer, Component> mountedRows = newlyMountedRows;
+		newlyMountedRows = new LinkedHashMap<>();
+		if (mountedRowsListener != null) {
+			mountedRowsListener.rowsMounted(mountedRows);
+		}
+	}
+
+
+	/*
+	 * A row that leaves the view is captured while it is still laid out, so its image can be
+	 * painted in its place until its Component is mounted again.
+	 */
+	private void captureMountedRow(int position) {
+		if (!isRowSnapshotPainted()) {return;}
+		rowSnapshotImageCache.capture(mountedFirstIndex + position, mountedComponents.get(position), 
+				componentsViewDisplay.getGraphicsConfiguration());
+	}
+
+
+	private boolean isRowSnapshotPainted() {
+		return rowSnapshotImageCache.isEnabled() && stampRowRenderer == null && tileArrangement == null 
+				&& !migLayoutFallbackEnabled;
+	}
+
+
+	/*
+	 * Every row in the clip that has no mounted Component is painted, as a JTable paints its 
+	 * cells, with the Component the stamp renderer configures for it or, without a stamp 
+	 * renderer, with the last image captured of it, if any.
+	 */
+	private void paintUnmountedRows(Graphics graphics) {
+		boolean isRowSnapshotPainted = isRowSnapshotPainted();
+		if (stampRowRenderer == null && !isRowSnapshotPainted) {return;}
+		if (rowGeometry == null || rowGeometry.size() == 0) {return;}
+		Rectangle clipRectangle = graphics.getClipBounds();
+		if (clipRectangle == null) {
+			clipRectangle = new Rectangle(componentsViewDisplay.getSize());
+		}
+		Insets insets = componentsViewDisplay.getInsets();
+		int rowWidth = componentsViewDisplay.getWidth() - insets.left - insets.right;
+		int firstRowIndex = rowGeometry.indexAtY(virtualViewCoordinates.toVirtualY(clipRectangle.y - insets.top));
+		int lastRowIndex = rowGeometry.indexAtY(virtualViewCoordinates.toVirtualY(
+				clipRectangle.y + clipRectangle.height - 1 - insets.top));
+		for (int rowIndex = firstRowIndex ; rowIndex <= lastRowIndex ; rowIndex++) {
+			if (rowIndex >= mountedFirstIndex && rowIndex <= getMountedLastIndex()) {continue;}
+			int rowY = insets.top + virtualViewCoordinates.toPhysicalY(rowGeometry.getOffset(rowIndex));
+			int rowHeight = rowGeometry.getHeight(rowIndex);
+			if (isRowSnapshotPainted) {
+				BufferedImage snapshotImage = rowSnapshotImageCache.get(rowIndex, rowWidth, rowHeight);
+				if (snapshotImage != null) {
+					graphics.drawImage(snapshotImage, insets.left, rowY, null);
+				}
+				continue;
+			}
+			Component stampComponent = stampRowRenderer.getStampComponent(rowIndex);
+			if (stampComponent == null) {continue;}
+			stampRendererPane.paintComponent(graphics, stampComponent, componentsViewDisplay, insets.left, rowY, 
+					rowWidth, rowHeight, true);
+		}
+		stampRendererPane.removeAll();
+	}
+
+
+	private int getMountedLastIndex() {
+		return mountedFirstIndex + mountedComponents.size() - 1;
 	}
 
-}
\ No newline at end of file
+}
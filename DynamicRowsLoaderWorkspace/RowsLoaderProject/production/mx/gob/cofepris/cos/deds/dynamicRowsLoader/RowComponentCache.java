@@ -0,0 +1,380 @@
+package mx.gob.cofepris.cos.deds.dynamicRowsLoader;
+
+import java.awt.Component;
+import java.awt.Container;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ToLongFunction;
+
+
+/*
+ * The components discarded while the cache is locked are only gathered; they are recycled, 
+ * and reported to the eviction listener, once the lock is released, since the event dispatch
+ * thread takes the same lock to commit the rows, and the listener could wait for it.
+ */
+class RowComponentCache {
+	static final long DEFAULT_BYTES_PER_COMPONENT = 2048;
+	private LinkedHashMap<Integer, CachedRow> cachedRowsMap = new LinkedHashMap<>(16, 0.75f, true);
+	private HashMap<Integer, SoftReference<Component>> demotedComponentsMap = new HashMap<>();
+	private RecycledComponentsPool recycledComponentsPool;
+	private RowEvictionListener rowEvictionListener;
+	private ToLongFunction<Component> memoryEstimator = RowComponentCache::estimateComponentTreeMemory;
+	private int maximumRetainedRows = 0;
+	private long memoryBudget = Long.MAX_VALUE;
+	private long estimatedMemory = 0;
+	private boolean softReferenceDemotionEnabled = false;
+	private int pinnedFirstIndex = -1;
+	private int pinnedLastIndex = -1;
+	private long generation = 0;
+	private ArrayList<DiscardedRow> discardedRows = new ArrayList<>();
+
+
+	RowComponentCache(RecycledComponentsPool recycledComponentsPool) {
+		this.recycledComponentsPool = recycledComponentsPool;
+	}
+
+
+	synchronized boolean containsKey(int rowIndex) {
+		return cachedRowsMap.containsKey(rowIndex) || promoteDemotedComponent(rowIndex);
+	}
+
+
+	synchronized Component get(int rowIndex) {
+		CachedRow cachedRow = cachedRowsMap.get(rowIndex);
+		if (cachedRow == null && promoteDemotedComponent(rowIndex)) {
+			cachedRow = cachedRowsMap.get(rowIndex);
+		}
+		return cachedRow == null ? null : cachedRow.component;
+	}
+
+
+	synchronized long getGeneration() {
+		return generation;
+	}
+
+
+	/*
+	 * Components built for a generation previous to the last clear belong to rows that no 
+	 * longer exist, so they are not cached.
+	 */
+	boolean put(int rowIndex, Component component, long expectedGeneration) {
+		synchronized (this) {
+			if (expectedGeneration != generation) {return false;}
+			demotedComponentsMap.remove(rowIndex);
+			CachedRow cachedRow = new CachedRow(component, estimateMemory(component));
+			CachedRow formerRow = cachedRowsMap.put(rowIndex, cachedRow);
+			estimatedMemory += cachedRow.estimatedMemory;
+			if (formerRow != null) {
+				estimatedMemory -= formerRow.estimatedMemory;
+				if (formerRow.component != component) {
+					discardComponent(rowIndex, formerRow.component);
+				}
+			}
+		}
+		releaseDiscardedRows();
+		return true;
+	}
+
+
+	synchronized boolean containsComponent(int rowIndex, Component component) {
+		CachedRow cachedRow = cachedRowsMap.get(rowIndex);
+		return cachedRow != null && cachedRow.component == component;
+	}
+
+
+	/*
+	 * Replaces the component of a row only if it is still the expected one; the replaced 
+	 * component is not discarded, since it is not reusable.
+	 */
+	boolean replace(int rowIndex, Component expectedComponent, Component component) {
+		synchronized (this) {
+			if (!containsComponent(rowIndex, expectedComponent)) {return false;}
+			CachedRow cachedRow = cachedRowsMap.get(rowIndex);
+			long replacementMemory = estimateMemory(component);
+			estimatedMemory += replacementMemory - cachedRow.estimatedMemory;
+			cachedRow.component = component;
+			cachedRow.estimatedMemory = replacementMemory;
+			evictExceedingRows();
+		}
+		releaseDiscardedRows();
+		return true;
+	}
+
+
+	/*
+	 * The rows in the pinned range are displayed or about to be, so they are never evicted; 
+	 * the remaining rows are evicted from the least recently used until the limits are met.
+	 */
+	void retainRows(int firstIndex, int lastIndex) {
+		synchronized (this) {
+			pinnedFirstIndex = firstIndex;
+			pinnedLastIndex = lastIndex;
+			evictExceedingRows();
+		}
+		releaseDiscardedRows();
+	}
+
+
+	void setMaximumRetainedRows(int maximumRetainedRows) {
+		synchronized (this) {
+			this.maximumRetainedRows = Math.max(0, maximumRetainedRows);
+			evictExceedingRows();
+		}
+		releaseDiscardedRows();
+	}
+
+
+	void setMemoryBudget(long memoryBudget, ToLongFunction<Component> memoryEstimator) {
+		synchronized (this) {
+			this.memoryBudget = memoryBudget < 0 ? Long.MAX_VALUE : memoryBudget;
+			this.memoryEstimator = memoryEstimator != null 
+					? memoryEstimator 
+					: RowComponentCache::estimateComponentTreeMemory;
+			estimatedMemory = 0;
+			for (CachedRow cachedRow : cachedRowsMap.values()) {
+				cachedRow.estimatedMemory = estimateMemory(cachedRow.component);
+				estimatedMemory += cachedRow.estimatedMemory;
+			}
+			evictExceedingRows();
+		}
+		releaseDiscardedRows();
+	}
+
+
+	void setSoftReferenceDemotionEnabled(boolean softReferenceDemotionEnabled) {
+		synchronized (this) {
+			this.softReferenceDemotionEnabled = softReferenceDemotionEnabled;
+			if (!softReferenceDemotionEnabled) {
+				discardDemotedComponents();
+			}
+		}
+		releaseDiscardedRows();
+	}
+
+
+	synchronized void setRowEvictionListener(RowEvictionListener rowEvictionListener) {
+		this.rowEvictionListener = rowEvictionListener;
+	}
+
+
+	void clear() {
+		synchronized (this) {
+			generation++;
+			for (Map.Entry<Integer, CachedRow> cachedEntry : cachedRowsMap.entrySet()) {
+				discardComponent(cachedEntry.getKey(), cachedEntry.getValue().component);
+			}
+			cachedRowsMap.clear();
+			discardDemotedComponents();
+			estimatedMemory = 0;
+			pinnedFirstIndex = -1;
+			pinnedLastIndex = -1;
+		}
+		releaseDiscardedRows();
+	}
+
+
+	/*
+	 * Moves every kept component to the row returned by the mapping, keeping the order of use;
+	 * the components of the rows mapped to a negative index are discarded. The generation 
+	 * changes, so a task that was building rows for the former indexes cannot cache them.
+	 */
+	void rearrangeRows(IntUnaryOperator destinationRowOf) {
+		synchronized (this) {
+			rearrangeCachedRows(destinationRowOf);
+		}
+		releaseDiscardedRows();
+	}
+
+
+	private void rearrangeCachedRows(IntUnaryOperator destinationRowOf) {
+		generation++;
+		LinkedHashMap<Integer, CachedRow> rearrangedRowsMap = new LinkedHashMap<>(16, 0.75f, true);
+		for (Map.Entry<Integer, CachedRow> cachedEntry : cachedRowsMap.entrySet()) {
+			int destinationRow = destinationRowOf.applyAsInt(cachedEntry.getKey());
+			if (destinationRow < 0) {
+				estimatedMemory -= cachedEntry.getValue().estimatedMemory;
+				discardComponent(cachedEntry.getKey(), cachedEntry.getValue().component);
+			} else {
+				rearrangedRowsMap.put(destinationRow, cachedEntry.getValue());
+			}
+		}
+		cachedRowsMap = rearrangedRowsMap;
+		HashMap<Integer, SoftReference<Component>> rearrangedDemotedMap = new HashMap<>();
+		for (Map.Entry<Integer, SoftReference<Component>> demotedEntry : demotedComponentsMap.entrySet()) {
+			int destinationRow = destinationRowOf.applyAsInt(demotedEntry.getKey());
+			Component demotedComponent = demotedEntry.getValue().get();
+			if (destinationRow >= 0) {
+				rearrangedDemotedMap.put(destinationRow, demotedEntry.getValue());
+			} else if (demotedComponent != null) {
+				discardComponent(demotedEntry.getKey(), demotedComponent);
+			}
+		}
+		demotedComponentsMap = rearrangedDemotedMap;
+		rearrangePinnedRows(destinationRowOf);
+	}
+
+
+	/*
+	 * The pinned range becomes the smallest one holding the pinned rows that were kept.
+	 */
+	private void rearrangePinnedRows(IntUnaryOperator destinationRowOf) {
+		int rearrangedFirstIndex = Integer.MAX_VALUE;
+		int rearrangedLastIndex = -1;
+		for (int rowIndex = Math.max(0, pinnedFirstIndex) ; rowIndex <= pinnedLastIndex ; rowIndex++) {
+			int destinationRow = destinationRowOf.applyAsInt(rowIndex);
+			if (destinationRow < 0) {continue;}
+			rearrangedFirstIndex = Math.min(rearrangedFirstIndex, destinationRow);
+			rearrangedLastIndex = Math.max(rearrangedLastIndex, destinationRow);
+		}
+		pinnedFirstIndex = rearrangedLastIndex < 0 ? -1 : rearrangedFirstIndex;
+		pinnedLastIndex = rearrangedLastIndex;
+	}
+
+
+	void dispose() {
+		clear();
+		recycledComponentsPool.clear();
+		synchronized (this) {
+			rowEvictionListener = null;
+		}
+	}
+
+
+	/*
+	 * Only the pinned rows are counted, so the cost does not depend on the number of cached 
+	 * rows; the evicted rows are taken from the least recently used end of the map.
+	 */
+	private void evictExceedingRows() {
+		int unpinnedRowsCount = cachedRowsMap.size() - countPinnedRows();
+		if (unpinnedRowsCount <= maximumRetainedRows && estimatedMemory <= memoryBudget) {return;}
+		Iterator<Map.Entry<Integer, CachedRow>> entryIterator = cachedRowsMap.entrySet().iterator();
+		while (entryIterator.hasNext() && (unpinnedRowsCount > maximumRetainedRows || estimatedMemory > memoryBudget)) {
+			Map.Entry<Integer, CachedRow> cachedEntry = entryIterator.next();
+			int rowIndex = cachedEntry.getKey();
+			if (isPinned(rowIndex)) {continue;}
+			entryIterator.remove();
+			unpinnedRowsCount--;
+			estimatedMemory -= cachedEntry.getValue().estimatedMemory;
+			if (softReferenceDemotionEnabled) {
+				demotedComponentsMap.put(rowIndex, new SoftReference<>(cachedEntry.getValue().component));
+			} else {
+				discardComponent(rowIndex, cachedEntry.getValue().component);
+			}
+		}
+	}
+
+
+	private boolean promoteDemotedComponent(int rowIndex) {
+		SoftReference<Component> demotedReference = demotedComponentsMap.remove(rowIndex);
+		Component demotedComponent = demotedReference == null ? null : demotedReference.get();
+		if (demotedComponent == null) {return false;}
+		CachedRow promotedRow = new CachedRow(demotedComponent, estimateMemory(demotedComponent));
+		cachedRowsMap.put(rowIndex, promotedRow);
+		estimatedMemory += promotedRow.estimatedMemory;
+		return true;
+	}
+
+
+	private void discardDemotedComponents() {
+		for (Map.Entry<Integer, SoftReference<Component>> demotedEntry : demotedComponentsMap.entrySet()) {
+			Component demotedComponent = demotedEntry.getValue().get();
+			if (demotedComponent != null) {
+				discardComponent(demotedEntry.getKey(), demotedComponent);
+			}
+		}
+		demotedComponentsMap.clear();
+	}
+
+
+	private void discardComponent(int rowIndex, Component component) {
+		discardedRows.add(new DiscardedRow(rowIndex, component));
+	}
+
+
+	/*
+	 * Must be called without holding the lock of the cache.
+	 */
+	private void releaseDiscardedRows() {
+		List<DiscardedRow> releasedRows;
+		RowEvictionListener evictionListener;
+		synchronized (this) {
+			if (discardedRows.isEmpty()) {return;}
+			releasedRows = discardedRows;
+			discardedRows = new ArrayList<>();
+			evictionListener = rowEvictionListener;
+		}
+		for (DiscardedRow discardedRow : releasedRows) {
+			recycledComponentsPool.recycleComponent(discardedRow.component, discardedRow.rowIndex);
+			if (evictionListener != null) {
+				evictionListener.rowEvicted(discardedRow.rowIndex, discardedRow.component);
+			}
+		}
+	}
+
+
+	private boolean isPinned(int rowIndex) {
+		return rowIndex >= pinnedFirstIndex && rowIndex <= pinnedLastIndex;
+	}
+
+
+	private int countPinnedRows() {
+		if (pinnedFirstIndex < 0 || pinnedLastIndex < pinnedFirstIndex) {return 0;}
+		int pinnedRowsCount = 0;
+		if ((long) pinnedLastIndex - pinnedFirstIndex < cachedRowsMap.size()) {
+			for (int rowIndex = pinnedFirstIndex ; rowIndex <= pinnedLastIndex ; rowIndex++) {
+				pinnedRowsCount += cachedRowsMap.containsKey(rowIndex) ? 1 : 0;
+			}
+		} else {
+			for (int rowIndex : cachedRowsMap.keySet()) {
+				pinnedRowsCount += isPinned(rowIndex) ? 1 : 0;
+			}
+		}
+		return pinnedRowsCount;
+	}
+
+
+	private long estimateMemory(Component component) {
+		return memoryBudget == Long.MAX_VALUE ? 0 : memoryEstimator.applyAsLong(component);
+	}
+
+
+	private static long estimateComponentTreeMemory(Component component) {
+		long estimatedMemory = DEFAULT_BYTES_PER_COMPONENT;
+		if (component instanceof Container) {
+			for (Component childComponent : ((Container) component).getComponents()) {
+				estimatedMemory += estimateComponentTreeMemory(childComponent);
+			}
+		}
+		return estimatedMemory;
+	}
+
+
+	private static class DiscardedRow {
+		private final int rowIndex;
+		private final Component component;
+
+
+		private DiscardedRow(int rowIndex, Component component) {
+			this.rowIndex = rowIndex;
+			this.component = component;
+		}
+	}
+
+
+	private static class CachedRow {
+		private Component component;
+		private long estimatedMemory;
+
+
+		private CachedRow(Component component, long estimatedMemory) {
+			this.component = component;
+			this.estimatedMemory = estimatedMemory;
+		}
+	}
+}
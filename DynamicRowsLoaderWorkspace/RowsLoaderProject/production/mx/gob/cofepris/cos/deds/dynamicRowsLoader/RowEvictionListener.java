@@ -0,0 +1,26 @@
+package mx.gob.cofepris.cos.deds.dynamicRowsLoader;
+
+import java.awt.Component;
+
+/**
+ * Interface to be implemented by all parties interested on being informed when the 
+ * {@link Component} of a GUI row is discarded from the cache of built rows of the 
+ * {@link MultiRowViewRenditionManager}, so the resources associated to the row can be released.
+ * 
+ * @author kijimenez
+ *
+ */
+public interface RowEvictionListener {
+
+	/**
+	 * The actions to perform after the Component of a row has been discarded. This method is
+	 * called from the row-update-thread, or from the thread that cleared the state of the 
+	 * Dynamic Rows Loader API, without holding any lock of the API, so it can wait for the event
+	 * dispatch thread.
+	 * 
+	 * @param rowIndex the index of the row whose Component was discarded.
+	 * @param component the discarded Component. It will not be displayed again by the API, 
+	 * although it could be reused if the renderer is a {@link RecyclingComponentRenderer}.
+	 */
+	public void rowEvicted(int rowIndex, Component component);
+}
@@ -0,0 +1,23 @@
+package mx.gob.cofepris.cos.deds.dynamicRowsLoader;
+
+
+interface RowGeometry {
+
+	int size();
+
+	long getVersion();
+
+	int getHeight(int rowIndex);
+
+	long getOffset(int rowIndex);
+
+	long getTotalHeight();
+
+	/*
+	 * Returns the row whose span, from its offset to its offset plus its height, contains the
+	 * position; rows of zero height contain no position, so they are never returned for it. 
+	 * Positions below zero are taken as zero, and positions at or beyond the total height
+	 * resolve to the last row. Returns -1 when there are no rows.
+	 */
+	int indexAtY(long y);
+}
@@ -0,0 +1,470 @@
+package mx.gob.cofepris.cos.deds.dynamicRowsLoader;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+
+/*
+ * Every row takes the default height plus its own delta. The deltas are kept in chunks of
+ * consecutive rows, each one with its own offsets tree, and a second tree accumulates the
+ * deltas of whole chunks. Chunks are only allocated once a delta is set in them, so a great
+ * number of rows of an estimated height costs no memory until they are measured.
+ */
+class RowGeometryIndex implements RowGeometry {
+	static final int CHUNK_BITS = 12;
+	static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	private static final int INITIAL_CHUNKS_CAPACITY = 4;
+	private int[][] chunkHeightDeltas = new int[INITIAL_CHUNKS_CAPACITY][];
+	private long[][] chunkOffsetsTrees = new long[INITIAL_CHUNKS_CAPACITY][];
+	private long[] chunksOffsetsTree = new long[INITIAL_CHUNKS_CAPACITY + 1];
+	private long[] chunkEpochs = new long[INITIAL_CHUNKS_CAPACITY];
+	private int size = 0;
+	private int defaultHeight = 0;
+	private long version = 0;
+	private boolean rebuildDeferred = false;
+	private BitSet staleChunks = new BitSet();
+	private boolean chunksOffsetsTreeStale = false;
+	private boolean outerArraysShared = false;
+	private int sharedRowsCount = 0;
+	private long snapshotEpoch = 0;
+	private RowGeometrySnapshot lastSnapshot;
+
+
+	RowGeometryIndex() {}
+
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+
+	@Override
+	public long getVersion() {
+		return version;
+	}
+
+
+	@Override
+	public int getHeight(int rowIndex) {
+		checkRowIndex(rowIndex, size);
+		return getHeight(chunkHeightDeltas, defaultHeight, rowIndex);
+	}
+
+
+	void setHeight(int rowIndex, int height) {
+		checkRowIndex(rowIndex, size);
+		setHeightDelta(rowIndex, height - defaultHeight);
+	}
+
+
+	void addHeight(int height) {
+		version++;
+		size++;
+		if (height != defaultHeight) {
+			setHeightDelta(size - 1, height - defaultHeight);
+		}
+	}
+
+
+	/*
+	 * Replaces every row by the given number of rows of the estimated height, without
+	 * allocating any chunk.
+	 */
+	void resetToEstimatedRows(int rowsCount, int estimatedHeight) {
+		clear();
+		size = rowsCount;
+		defaultHeight = estimatedHeight;
+	}
+
+
+	/*
+	 * Replaces every row by the given heights. The smallest height becomes the default one, so
+	 * the chunks whose rows all take it are not allocated; the rest of the chunks are built by
+	 * the workers of the common pool, each one on its own, and the tree of the chunks is built 
+	 * from a parallel prefix sum of their totals.
+	 */
+	void resetToHeights(int[] heights) {
+		clear();
+		int rowsCount = heights.length;
+		int chunksCount = (int) (((long) rowsCount + CHUNK_MASK) >>> CHUNK_BITS);
+		ensureChunksCapacity(chunksCount);
+		size = rowsCount;
+		defaultHeight = rowsCount == 0 ? 0 : IntStream.of(heights).parallel().min().getAsInt();
+		IntStream.range(0, chunksCount).parallel().forEach(chunkIndex -> buildChunk(heights, chunkIndex));
+		long[] chunksOffsets = new long[chunksOffsetsTree.length];
+		for (int chunkIndex = 0 ; chunkIndex < chunksCount ; chunkIndex++) {
+			if (chunkOffsetsTrees[chunkIndex] != null) {
+				chunksOffsets[chunkIndex + 1] = treePrefixSum(chunkOffsetsTrees[chunkIndex], CHUNK_SIZE);
+			}
+		}
+		Arrays.parallelPrefix(chunksOffsets, Long::sum);
+		chunksOffsetsTree = toOffsetsTree(chunksOffsets);
+		chunksOffsetsTreeStale = false;
+	}
+
+
+	/*
+	 * Only writes the slots of its own chunk, so the chunks can be built concurrently.
+	 */
+	private void buildChunk(int[] heights, int chunkIndex) {
+		int firstRow = chunkIndex << CHUNK_BITS;
+		int rowsCount = Math.min(CHUNK_SIZE, heights.length - firstRow);
+		int[] heightDeltas = null;
+		long[] offsets = null;
+		for (int localIndex = 0 ; localIndex < rowsCount ; localIndex++) {
+			int heightDelta = heights[firstRow + localIndex] - defaultHeight;
+			if (heightDelta == 0) {continue;}
+			if (heightDeltas == null) {
+				heightDeltas = new int[CHUNK_SIZE];
+				offsets = new long[CHUNK_SIZE + 1];
+			}
+			heightDeltas[localIndex] = heightDelta;
+			offsets[localIndex + 1] = heightDelta;
+		}
+		if (heightDeltas == null) {return;}
+		for (int treeIndex = 1 ; treeIndex < offsets.length ; treeIndex++) {
+			offsets[treeIndex] += offsets[treeIndex - 1];
+		}
+		chunkHeightDeltas[chunkIndex] = heightDeltas;
+		chunkOffsetsTrees[chunkIndex] = toOffsetsTree(offsets);
+		chunkEpochs[chunkIndex] = snapshotEpoch;
+	}
+
+
+	/*
+	 * Moves the delta of every row from the first affected one onwards to the row returned by
+	 * the mapping, or drops it if the mapping returns a negative index; rows that receive no 
+	 * delta take the default height. Only the allocated chunks are visited, and the affected 
+	 * chunks are replaced rather than modified, so the snapshots are not disturbed.
+	 */
+	void rearrangeRows(int firstAffectedRow, int rowsCount, IntUnaryOperator destinationRowOf) {
+		version++;
+		int firstAffectedChunk = firstAffectedRow >>> CHUNK_BITS;
+		int formerSize = size;
+		int[][] formerChunkHeightDeltas = chunkHeightDeltas;
+		int chunksCapacity = formerChunkHeightDeltas.length;
+		chunkHeightDeltas = Arrays.copyOf(Arrays.copyOf(formerChunkHeightDeltas, Math.min(firstAffectedChunk, chunksCapacity)), 
+				chunksCapacity);
+		chunkOffsetsTrees = Arrays.copyOf(Arrays.copyOf(chunkOffsetsTrees, Math.min(firstAffectedChunk, chunksCapacity)), 
+				chunksCapacity);
+		chunksOffsetsTree = new long[chunksCapacity + 1];
+		outerArraysShared = false;
+		chunksOffsetsTreeStale = true;
+		staleChunks.clear(firstAffectedChunk, Math.max(firstAffectedChunk, chunksCapacity));
+		size = rowsCount;
+		for (int chunkIndex = firstAffectedChunk ; chunkIndex < chunksCapacity ; chunkIndex++) {
+			int[] heightDeltas = formerChunkHeightDeltas[chunkIndex];
+			if (heightDeltas == null) {continue;}
+			for (int localIndex = 0 ; localIndex < CHUNK_SIZE ; localIndex++) {
+				int rowIndex = (chunkIndex << CHUNK_BITS) + localIndex;
+				if (rowIndex >= formerSize) {break;}
+				if (heightDeltas[localIndex] == 0) {continue;}
+				int destinationRow = rowIndex < firstAffectedRow ? rowIndex : destinationRowOf.applyAsInt(rowIndex);
+				if (destinationRow < 0 || destinationRow >= size) {continue;}
+				int destinationChunk = destinationRow >>> CHUNK_BITS;
+				ensureChunksCapacity(destinationChunk + 1);
+				ensureChunk(destinationChunk)[destinationRow & CHUNK_MASK] = heightDeltas[localIndex];
+				staleChunks.set(destinationChunk);
+			}
+		}
+		if (!rebuildDeferred) {
+			ensureOffsetsTrees();
+		}
+	}
+
+
+	void beginDeferredRebuild() {
+		rebuildDeferred = true;
+	}
+
+
+	void endDeferredRebuild() {
+		rebuildDeferred = false;
+		ensureOffsetsTrees();
+	}
+
+
+	@Override
+	public long getOffset(int rowIndex) {
+		checkRowIndex(rowIndex, size);
+		return prefixSum(rowIndex);
+	}
+
+
+	@Override
+	public int indexAtY(long y) {
+		ensureOffsetsTrees();
+		return indexAtY(chunkOffsetsTrees, chunksOffsetsTree, size, defaultHeight, y);
+	}
+
+
+	@Override
+	public long getTotalHeight() {
+		return prefixSum(size);
+	}
+
+
+	void clear() {
+		chunkHeightDeltas = new int[INITIAL_CHUNKS_CAPACITY][];
+		chunkOffsetsTrees = new long[INITIAL_CHUNKS_CAPACITY][];
+		chunksOffsetsTree = new long[INITIAL_CHUNKS_CAPACITY + 1];
+		chunkEpochs = new long[INITIAL_CHUNKS_CAPACITY];
+		size = 0;
+		defaultHeight = 0;
+		version++;
+		staleChunks.clear();
+		chunksOffsetsTreeStale = false;
+		outerArraysShared = false;
+		sharedRowsCount = 0;
+	}
+
+
+	/*
+	 * The snapshot shares the arrays of this index. Rows past the biggest size seen by any
+	 * snapshot are never read by them, so they are modified in place; modifying any other row
+	 * first copies the arrays that a snapshot could read.
+	 */
+	RowGeometrySnapshot snapshot() {
+		ensureOffsetsTrees();
+		if (lastSnapshot == null || lastSnapshot.getVersion() != version) {
+			lastSnapshot = new RowGeometrySnapshot(chunkHeightDeltas, chunkOffsetsTrees, chunksOffsetsTree, size,
+					defaultHeight, version);
+			outerArraysShared = true;
+			sharedRowsCount = Math.max(sharedRowsCount, size);
+			snapshotEpoch++;
+		}
+		return lastSnapshot;
+	}
+
+
+	private void setHeightDelta(int rowIndex, int heightDelta) {
+		int chunkIndex = rowIndex >>> CHUNK_BITS;
+		if (heightDelta == 0 && getHeight(chunkHeightDeltas, 0, rowIndex) == 0) {return;}
+		ensureChunksCapacity(chunkIndex + 1);
+		prepareRowMutation(rowIndex);
+		int[] heightDeltas = ensureChunk(chunkIndex);
+		int localIndex = rowIndex & CHUNK_MASK;
+		long deltaChange = (long) heightDelta - heightDeltas[localIndex];
+		heightDeltas[localIndex] = heightDelta;
+		if (rebuildDeferred || chunksOffsetsTreeStale || !staleChunks.isEmpty()) {
+			staleChunks.set(chunkIndex);
+			chunksOffsetsTreeStale = true;
+			return;
+		}
+		long[] chunkOffsetsTree = chunkOffsetsTrees[chunkIndex];
+		for (int treeIndex = localIndex + 1 ; treeIndex <= CHUNK_SIZE ; treeIndex += lowestBit(treeIndex)) {
+			chunkOffsetsTree[treeIndex] += deltaChange;
+		}
+		for (int treeIndex = chunkIndex + 1 ; treeIndex < chunksOffsetsTree.length ; treeIndex += lowestBit(treeIndex)) {
+			chunksOffsetsTree[treeIndex] += deltaChange;
+		}
+	}
+
+
+	private void prepareRowMutation(int rowIndex) {
+		version++;
+		if (rowIndex >= sharedRowsCount) {return;}
+		if (outerArraysShared) {
+			copyOuterArrays();
+		}
+		int chunkIndex = rowIndex >>> CHUNK_BITS;
+		if (chunkHeightDeltas[chunkIndex] != null && chunkEpochs[chunkIndex] < snapshotEpoch) {
+			chunkHeightDeltas[chunkIndex] = chunkHeightDeltas[chunkIndex].clone();
+			chunkOffsetsTrees[chunkIndex] = chunkOffsetsTrees[chunkIndex].clone();
+			chunkEpochs[chunkIndex] = snapshotEpoch;
+		}
+	}
+
+
+	private void copyOuterArrays() {
+		chunkHeightDeltas = chunkHeightDeltas.clone();
+		chunkOffsetsTrees = chunkOffsetsTrees.clone();
+		chunksOffsetsTree = chunksOffsetsTree.clone();
+		outerArraysShared = false;
+	}
+
+
+	private int[] ensureChunk(int chunkIndex) {
+		if (chunkHeightDeltas[chunkIndex] == null) {
+			if (outerArraysShared) {
+				copyOuterArrays();
+			}
+			chunkHeightDeltas[chunkIndex] = new int[CHUNK_SIZE];
+			chunkOffsetsTrees[chunkIndex] = new long[CHUNK_SIZE + 1];
+			chunkEpochs[chunkIndex] = snapshotEpoch;
+		}
+		return chunkHeightDeltas[chunkIndex];
+	}
+
+
+	/*
+	 * The tree of the chunks only covers the chunks allocated so far; growing it changes the
+	 * chunks covered by its nodes, so it is rebuilt.
+	 */
+	private void ensureChunksCapacity(int requiredChunksCount) {
+		int chunksCapacity = chunkHeightDeltas.length;
+		if (requiredChunksCount <= chunksCapacity) {return;}
+		int newChunksCapacity = Math.max(requiredChunksCount, chunksCapacity * 2);
+		chunkHeightDeltas = Arrays.copyOf(chunkHeightDeltas, newChunksCapacity);
+		chunkOffsetsTrees = Arrays.copyOf(chunkOffsetsTrees, newChunksCapacity);
+		chunksOffsetsTree = new long[newChunksCapacity + 1];
+		chunkEpochs = Arrays.copyOf(chunkEpochs, newChunksCapacity);
+		outerArraysShared = false;
+		chunksOffsetsTreeStale = true;
+	}
+
+
+	private void ensureOffsetsTrees() {
+		if (!chunksOffsetsTreeStale && staleChunks.isEmpty()) {return;}
+		if (outerArraysShared) {
+			copyOuterArrays();
+		}
+		for (int chunkIndex = staleChunks.nextSetBit(0) ; chunkIndex >= 0 ; chunkIndex = staleChunks.nextSetBit(chunkIndex + 1)) {
+			if (chunkEpochs[chunkIndex] < snapshotEpoch) {
+				chunkHeightDeltas[chunkIndex] = chunkHeightDeltas[chunkIndex].clone();
+				chunkEpochs[chunkIndex] = snapshotEpoch;
+			}
+			chunkOffsetsTrees[chunkIndex] = buildOffsetsTree(chunkHeightDeltas[chunkIndex]);
+		}
+		staleChunks.clear();
+		long[] rebuiltChunksOffsetsTree = new long[chunksOffsetsTree.length];
+		for (int treeIndex = 1 ; treeIndex < rebuiltChunksOffsetsTree.length ; treeIndex++) {
+			long[] chunkOffsetsTree = chunkOffsetsTrees[treeIndex - 1];
+			if (chunkOffsetsTree != null) {
+				rebuiltChunksOffsetsTree[treeIndex] += treePrefixSum(chunkOffsetsTree, CHUNK_SIZE);
+			}
+			int parentIndex = treeIndex + lowestBit(treeIndex);
+			if (parentIndex < rebuiltChunksOffsetsTree.length) {
+				rebuiltChunksOffsetsTree[parentIndex] += rebuiltChunksOffsetsTree[treeIndex];
+			}
+		}
+		chunksOffsetsTree = rebuiltChunksOffsetsTree;
+		chunksOffsetsTreeStale = false;
+	}
+
+
+	private long prefixSum(int rowsCount) {
+		ensureOffsetsTrees();
+		return prefixSum(chunkOffsetsTrees, chunksOffsetsTree, defaultHeight, rowsCount);
+	}
+
+
+	private static long[] buildOffsetsTree(int[] heightDeltas) {
+		long[] offsetsTree = new long[heightDeltas.length + 1];
+		for (int treeIndex = 1 ; treeIndex < offsetsTree.length ; treeIndex++) {
+			offsetsTree[treeIndex] += heightDeltas[treeIndex - 1];
+			int parentIndex = treeIndex + lowestBit(treeIndex);
+			if (parentIndex < offsetsTree.length) {
+				offsetsTree[parentIndex] += offsetsTree[treeIndex];
+			}
+		}
+		return offsetsTree;
+	}
+
+
+	/*
+	 * Each node of an offsets tree holds the sum of the lowestBit(i) values that end at it, 
+	 * which is the difference between two offsets; the offsets are replaced from the last one,
+	 * so the offsets that are still required are not replaced yet.
+	 */
+	private static long[] toOffsetsTree(long[] offsets) {
+		for (int treeIndex = offsets.length - 1 ; treeIndex > 0 ; treeIndex--) {
+			offsets[treeIndex] -= offsets[treeIndex - lowestBit(treeIndex)];
+		}
+		return offsets;
+	}
+
+
+	static int getHeight(int[][] chunkHeightDeltas, int defaultHeight, int rowIndex) {
+		int chunkIndex = rowIndex >>> CHUNK_BITS;
+		if (chunkIndex >= chunkHeightDeltas.length || chunkHeightDeltas[chunkIndex] == null) {
+			return defaultHeight;
+		}
+		return defaultHeight + chunkHeightDeltas[chunkIndex][rowIndex & CHUNK_MASK];
+	}
+
+
+	static long prefixSum(long[][] chunkOffsetsTrees, long[] chunksOffsetsTree, int defaultHeight, int rowsCount) {
+		int chunkIndex = rowsCount >>> CHUNK_BITS;
+		int chunksCapacity = chunkOffsetsTrees.length;
+		long sum = (long) rowsCount * defaultHeight + treePrefixSum(chunksOffsetsTree, Math.min(chunkIndex, chunksCapacity));
+		if (chunkIndex < chunksCapacity && chunkOffsetsTrees[chunkIndex] != null) {
+			sum += treePrefixSum(chunkOffsetsTrees[chunkIndex], rowsCount & CHUNK_MASK);
+		}
+		return sum;
+	}
+
+
+	/*
+	 * Descends first through the tree of the full chunks and then through the tree of the 
+	 * chunk found. Each node covers as many rows as its span, so its height is its accumulated
+	 * delta plus that many default heights. The last chunk, if partial, is only descended 
+	 * through its own tree, whose nodes never include rows beyond the size. Beyond the 
+	 * allocated chunks every row takes the default height, so the remaining distance is divided
+	 * directly.
+	 * Both descents skip every node whose rows end at or above the position, so they stop on
+	 * the row whose span contains it: rows of zero height have an empty span and are skipped,
+	 * even when they are the first rows or begin a chunk. A default height of zero makes every
+	 * row of an unallocated chunk such a row.
+	 */
+	static int indexAtY(long[][] chunkOffsetsTrees, long[] chunksOffsetsTree, int size, int defaultHeight, long y) {
+		if (size == 0) {return -1;}
+		int fullChunksCount = Math.min(chunkOffsetsTrees.length, size >>> CHUNK_BITS);
+		int chunksAbove = 0;
+		long remainingY = Math.max(0, y);
+		for (int step = Integer.highestOneBit(fullChunksCount) ; step > 0 ; step >>= 1) {
+			int treeIndex = chunksAbove + step;
+			if (treeIndex > fullChunksCount) {continue;}
+			long nodeHeight = chunksOffsetsTree[treeIndex] + ((long) step << CHUNK_BITS) * defaultHeight;
+			if (nodeHeight <= remainingY) {
+				chunksAbove = treeIndex;
+				remainingY -= nodeHeight;
+			}
+		}
+		long rowsAbove = (long) chunksAbove << CHUNK_BITS;
+		boolean isChunkAllocatable = chunksAbove < chunkOffsetsTrees.length;
+		int remainingRows = (int) Math.min(size - rowsAbove, isChunkAllocatable ? CHUNK_SIZE : Integer.MAX_VALUE);
+		long[] chunkOffsetsTree = isChunkAllocatable ? chunkOffsetsTrees[chunksAbove] : null;
+		if (chunkOffsetsTree != null) {
+			int localRowsAbove = 0;
+			for (int step = Integer.highestOneBit(remainingRows) ; step > 0 ; step >>= 1) {
+				int treeIndex = localRowsAbove + step;
+				if (treeIndex > remainingRows) {continue;}
+				long nodeHeight = chunkOffsetsTree[treeIndex] + (long) step * defaultHeight;
+				if (nodeHeight <= remainingY) {
+					localRowsAbove = treeIndex;
+					remainingY -= nodeHeight;
+				}
+			}
+			rowsAbove += localRowsAbove;
+		} else if (remainingY > 0 || defaultHeight == 0) {
+			rowsAbove += defaultHeight > 0 ? Math.min(remainingY / defaultHeight, remainingRows) : remainingRows;
+		}
+		return (int) Math.min(rowsAbove, size - 1);
+	}
+
+
+	static void checkRowIndex(int rowIndex, int size) {
+		if (rowIndex < 0 || rowIndex >= size) {
+			throw new IndexOutOfBoundsException("row index " + rowIndex + " out of range [0, " + size + ")");
+		}
+	}
+
+
+	private static long treePrefixSum(long[] offsetsTree, int rowsCount) {
+		long sum = 0;
+		for (int treeIndex = rowsCount ; treeIndex > 0 ; treeIndex -= lowestBit(treeIndex)) {
+			sum += offsetsTree[treeIndex];
+		}
+		return sum;
+	}
+
+
+	private static int lowestBit(int treeIndex) {
+		return treeIndex & -treeIndex;
+	}
+}
@@ -0,0 +1,60 @@
+package mx.gob.cofepris.cos.deds.dynamicRowsLoader;
+
+
+final class RowGeometrySnapshot implements RowGeometry {
+	private final int[][] chunkHeightDeltas;
+	private final long[][] chunkOffsetsTrees;
+	private final long[] chunksOffsetsTree;
+	private final int size;
+	private final int defaultHeight;
+	private final long version;
+
+
+	RowGeometrySnapshot(int[][] chunkHeightDeltas, long[][] chunkOffsetsTrees, long[] chunksOffsetsTree, int size, 
+			int defaultHeight, long version) {
+		this.chunkHeightDeltas = chunkHeightDeltas;
+		this.chunkOffsetsTrees = chunkOffsetsTrees;
+		this.chunksOffsetsTree = chunksOffsetsTree;
+		this.size = size;
+		this.defaultHeight = defaultHeight;
+		this.version = version;
+	}
+
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+
+	@Override
+	public long getVersion() {
+		return version;
+	}
+
+
+	@Override
+	public int getHeight(int rowIndex) {
+		RowGeometryIndex.checkRowIndex(rowIndex, size);
+		return RowGeometryIndex.getHeight(chunkHeightDeltas, defaultHeight, rowIndex);
+	}
+
+
+	@Override
+	public long getOffset(int rowIndex) {
+		RowGeometryIndex.checkRowIndex(rowIndex, size);
+		return RowGeometryIndex.prefixSum(chunkOffsetsTrees, chunksOffsetsTree, defaultHeight, rowIndex);
+	}
+
+
+	@Override
+	public long getTotalHeight() {
+		return RowGeometryIndex.prefixSum(chunkOffsetsTrees, chunksOffsetsTree, defaultHeight, size);
+	}
+
+
+	@Override
+	public int indexAtY(long y) {
+		return RowGeometryIndex.indexAtY(chunkOffsetsTrees, chunksOffsetsTree, size, defaultHeight, y);
+	}
+}
@@ -0,0 +1,28 @@
+package mx.gob.cofepris.cos.deds.dynamicRowsLoader;
+
+import java.util.List;
+
+/**
+ * Must return the information of the rows in pages of a fixed size. It is used by a
+ * {@link PagedRowDataCache} to retrieve the information of many rows with a single query.
+ *
+ * @author kijimenez
+ *
+ * @param <T> the type of the information of a row.
+ */
+public interface RowPageSource<T> {
+
+	/**
+	 * Returns the information of the rows of the given page. The page holds the rows from
+	 * pageIndex * pageSize up to, but not including, (pageIndex + 1) * pageSize. This method
+	 * is called away from the event dispatch thread, and it can be called concurrently for
+	 * different pages.
+	 *
+	 * @param pageIndex the index of the page, starting at 0.
+	 * @param pageSize the number of rows of every page.
+	 *
+	 * @return the information of the rows of the page, in order. Only the last page may hold
+	 * fewer than pageSize rows.
+	 */
+	public List<T> loadPage(int pageIndex, int pageSize);
+}
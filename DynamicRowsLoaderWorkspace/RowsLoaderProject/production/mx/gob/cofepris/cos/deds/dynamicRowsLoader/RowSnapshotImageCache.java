@@ -0,0 +1,121 @@
+package mx.gob.cofepris.cos.deds.dynamicRowsLoader;
+
+import java.awt.Component;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
+
+
+/*
+ * Images of the rows as they looked the last time they were displayed, painted in their place
+ * while their Components are not mounted. The least recently used images are discarded first,
+ * once the memory of all of them exceeds the budget; a budget of zero disables the cache. It is
+ * only used on the event dispatch thread.
+ */
+class RowSnapshotImageCache {
+	private static final int BYTES_PER_PIXEL = 4;
+	private LinkedHashMap<Integer, BufferedImage> snapshotImagesMap = new LinkedHashMap<>(16, 0.75f, true);
+	private long memoryBudget = 0;
+	private long usedMemory = 0;
+
+
+	boolean isEnabled() {
+		return memoryBudget > 0;
+	}
+
+
+	void setMemoryBudget(long memoryBudget) {
+		this.memoryBudget = Math.max(0, memoryBudget);
+		evictExceedingImages();
+	}
+
+
+	/*
+	 * Only a Component with a size can be captured; an image that alone exceeds the budget is
+	 * not kept.
+	 */
+	void capture(int rowIndex, Component component, GraphicsConfiguration graphicsConfiguration) {
+		if (!isEnabled()) {return;}
+		int width = component.getWidth();
+		int height = component.getHeight();
+		if (width <= 0 || height <= 0 || getImageMemory(width, height) > memoryBudget) {return;}
+		BufferedImage snapshotImage = graphicsConfiguration != null
+				? graphicsConfiguration.createCompatibleImage(width, height, Transparency.TRANSLUCENT)
+				: new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D imageGraphics = snapshotImage.createGraphics();
+		try {
+			component.paint(imageGraphics);
+		} finally {
+			imageGraphics.dispose();
+		}
+		remove(rowIndex);
+		snapshotImagesMap.put(rowIndex, snapshotImage);
+		usedMemory += getImageMemory(width, height);
+		evictExceedingImages();
+	}
+
+
+	/*
+	 * An image whose size differs from the current bounds of its row is outdated, so it is not
+	 * returned.
+	 */
+	BufferedImage get(int rowIndex, int width, int height) {
+		BufferedImage snapshotImage = snapshotImagesMap.get(rowIndex);
+		if (snapshotImage == null || snapshotImage.getWidth() != width || snapshotImage.getHeight() != height) {
+			return null;
+		}
+		return snapshotImage;
+	}
+
+
+	void rearrangeRows(IntUnaryOperator destinationRowOf) {
+		LinkedHashMap<Integer, BufferedImage> rearrangedImagesMap = new LinkedHashMap<>(16, 0.75f, true);
+		for (Map.Entry<Integer, BufferedImage> snapshotEntry : snapshotImagesMap.entrySet()) {
+			int destinationRow = destinationRowOf.applyAsInt(snapshotEntry.getKey());
+			if (destinationRow >= 0) {
+				rearrangedImagesMap.put(destinationRow, snapshotEntry.getValue());
+			} else {
+				usedMemory -= getImageMemory(snapshotEntry.getValue());
+			}
+		}
+		snapshotImagesMap = rearrangedImagesMap;
+	}
+
+
+	void clear() {
+		snapshotImagesMap.clear();
+		usedMemory = 0;
+	}
+
+
+	private void remove(int rowIndex) {
+		BufferedImage formerImage = snapshotImagesMap.remove(rowIndex);
+		if (formerImage != null) {
+			usedMemory -= getImageMemory(formerImage);
+		}
+	}
+
+
+	private void evictExceedingImages() {
+		Iterator<BufferedImage> imageIterator = snapshotImagesMap.values().iterator();
+		while (usedMemory > memoryBudget && imageIterator.hasNext()) {
+			usedMemory -= getImageMemory(imageIterator.next());
+			imageIterator.remove();
+		}
+	}
+
+
+	private static long getImageMemory(BufferedImage image) {
+		return getImageMemory(image.getWidth(), image.getHeight());
+	}
+
+
+	private static long getImageMemory(int width, int height) {
+		return (long) width * height * BYTES_PER_PIXEL;
+	}
+}
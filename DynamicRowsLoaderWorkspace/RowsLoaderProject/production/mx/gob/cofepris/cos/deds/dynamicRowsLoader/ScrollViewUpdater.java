@@ -2,15 +2,26 @@ package mx.gob.cofepris.cos.deds.dynamicRowsLoader;
 
 import java.awt.*;
 import java.lang.reflect.*;
+import java.util.List;
+import java.util.function.BooleanSupplier;
 import javax.swing.*;
 
 
 class ScrollViewUpdater {
 	private ResizableViewPortScroll targetDisplayerScroll;
-	private Component targetComponent;
+	private List<Component> targetComponents;
+	private int firstComponentIndex;
+	private RowGeometry rowGeometry;
 	private int inicialSpaceHeight;
 	private int finalSpaceHeight;
-	private boolean screenWentDown;
+	private AsyncRowComponentsLoader asyncRowComponentsLoader;
+	private BooleanSupplier commitCondition = () -> true;
+	private RowGeometry columnGeometry;
+	private int firstColumnIndex = 0;
+	private int lastColumnIndex = -1;
+	private TileArrangement tileArrangement;
+	private long targetVirtualViewY = -1;
+	private Runnable targetReachedAction;
 
 
 	ScrollViewUpdater setTargetDisplayerScroll(ResizableViewPortScroll targetDisplayerScroll) {
@@ -19,8 +30,20 @@ class ScrollViewUpdater {
 	}
 
 
-	ScrollViewUpdater setTargetComponent(Component targetComponent) {
-		this.targetComponent = targetComponent;
+	ScrollViewUpdater setTargetComponents(List<Component> targetComponents) {
+		this.targetComponents = targetComponents;
+		return this;
+	}
+
+
+	ScrollViewUpdater setFirstComponentIndex(int firstComponentIndex) {
+		this.firstComponentIndex = firstComponentIndex;
+		return this;
+	}
+
+
+	ScrollViewUpdater setRowGeometry(RowGeometry rowGeometry) {
+		this.rowGeometry = rowGeometry;
 		return this;
 	}
 
@@ -37,8 +60,35 @@ class ScrollViewUpdater {
 	}
 
 
-	ScrollViewUpdater setScreenWentDown(boolean screenWentDown) {
-		this.screenWentDown = screenWentDown;
+	ScrollViewUpdater setAsyncRowComponentsLoader(AsyncRowComponentsLoader asyncRowComponentsLoader) {
+		this.asyncRowComponentsLoader = asyncRowComponentsLoader;
+		return this;
+	}
+
+
+	ScrollViewUpdater setCommitCondition(BooleanSupplier commitCondition) {
+		this.commitCondition = commitCondition;
+		return this;
+	}
+
+
+	ScrollViewUpdater setVisibleColumns(RowGeometry columnGeometry, int firstColumnIndex, int lastColumnIndex) {
+		this.columnGeometry = columnGeometry;
+		this.firstColumnIndex = firstColumnIndex;
+		this.lastColumnIndex = lastColumnIndex;
+		return this;
+	}
+
+
+	ScrollViewUpdater setTileArrangement(TileArrangement tileArrangement) {
+		this.tileArrangement = tileArrangement;
+		return this;
+	}
+
+
+	ScrollViewUpdater setTargetViewPosition(long targetVirtualViewY, Runnable targetReachedAction) {
+		this.targetVirtualViewY = targetVirtualViewY;
+		this.targetReachedAction = targetReachedAction;
 		return this;
 	}
 
@@ -49,6 +99,7 @@ class ScrollViewUpdater {
 			Runnable scrollUpdateThread = createScrollUpdateRunnable();
 			SwingUtilities.invokeAndWait(scrollUpdateThread);
 		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 		} catch (InvocationTargetException e) {
 			e.printStackTrace();
 		}
@@ -59,8 +110,16 @@ class ScrollViewUpdater {
 		return new Runnable() {
 			@Override
 			public void run() {
+				if (!commitCondition.getAsBoolean()) {return;}
+				if (asyncRowComponentsLoader != null) {
+					targetComponents.replaceAll(asyncRowComponentsLoader::resolveComponent);
+				}
+				mountVisibleCells();
+				targetDisplayerScroll.setTileArrangement(tileArrangement);
+				targetDisplayerScroll.setRowGeometry(rowGeometry);
+				targetDisplayerScroll.reconcileViewDisplay(firstComponentIndex, targetComponents);
 				targetDisplayerScroll.setInicialAndFinalSpaceAdjustHeight(inicialSpaceHeight, finalSpaceHeight);
-				targetDisplayerScroll.addComponentToViewDisplay(targetComponent, screenWentDown);
+				moveToTargetViewPosition();
 				targetDisplayerScroll.revalidate();
 				targetDisplayerScroll.repaint();
 			}
@@ -68,10 +127,38 @@ class ScrollViewUpdater {
 	}
 
 
+	/*
+	 * The cells are mounted before the rows, so the rows are measured with their cells.
+	 */
+	private void mountVisibleCells() {
+		if (columnGeometry == null) {return;}
+		for (Component targetComponent : targetComponents) {
+			if (targetComponent instanceof VirtualCellsRow) {
+				((VirtualCellsRow) targetComponent).mountCells(columnGeometry, firstColumnIndex, lastColumnIndex);
+			}
+		}
+	}
+
+
+	/*
+	 * The view is moved in the same step that mounts the rows of the target position, so the
+	 * first frame painted there already shows them.
+	 */
+	private void moveToTargetViewPosition() {
+		if (targetVirtualViewY < 0) {return;}
+		targetDisplayerScroll.moveToTargetVirtualY(targetVirtualViewY);
+		if (targetReachedAction != null) {
+			targetReachedAction.run();
+		}
+	}
+
+
 	private void testValidUpdateState() {
 		if (targetDisplayerScroll == null) {
 			throw new IllegalStateException();
-		} else if (targetComponent == null) {
+		} else if (targetComponents == null || targetComponents.contains(null)) {
+			throw new IllegalStateException();
+		} else if (rowGeometry == null || commitCondition == null) {
 			throw new IllegalStateException();
 		} else if (inicialSpaceHeight < 0) {
 			throw new IllegalStateException();
@@ -79,4 +166,4 @@ class ScrollViewUpdater {
 			throw new IllegalStateException();
 		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,41 @@
+package mx.gob.cofepris.cos.deds.dynamicRowsLoader;
+
+import java.awt.Component;
+
+/**
+ * A {@link ToDisplayComponentRenderer} for rows that are mostly read, which are painted as
+ * stamps, the way a JTable paints its cells: instead of keeping a live Component for every
+ * visible row, the Dynamic Rows Loader API asks this renderer for a Component configured for
+ * the row and paints it at the position of the row through a 
+ * {@link javax.swing.CellRendererPane}; the same Component is then configured again for the
+ * next row. The visible rows then cost neither layout, nor event dispatch, nor memory.
+ * <br>
+ * Only one row at a time is displayed with a live Component, built through
+ * {@link #retrieveComponent} as with any other renderer: the row that holds the keyboard focus
+ * or, if none does, the row under the mouse. That row can be interacted with as usual; the
+ * rest of the rows are only painted.
+ * <br>
+ * The stamps are painted again whenever the view is painted, so a change of the information of
+ * the rows is displayed once {@link MultiRowViewRenditionManager#scheduleUpdateVisibleComponentsTask}
+ * is called, or the scroll pane is repainted.
+ *
+ * @author kijimenez
+ *
+ */
+public interface StampRowRenderer extends ToDisplayComponentRenderer {
+
+	/**
+	 * Returns the Component used to paint the given row. It is called on the event dispatch
+	 * thread, every time the row is painted, so it must be fast: typically, it holds one
+	 * Component for each kind of row, and returns the one of the row after setting the
+	 * information of the row into it.
+	 * <br>
+	 * The Component is painted with the width of the view and the height of the row; it does not
+	 * receive any event.
+	 *
+	 * @param rowIndex the index of the painted row.
+	 *
+	 * @return the Component configured to look as the given row.
+	 */
+	public Component getStampComponent(int rowIndex);
+}
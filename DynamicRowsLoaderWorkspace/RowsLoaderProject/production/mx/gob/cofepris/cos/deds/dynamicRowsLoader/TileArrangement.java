@@ -0,0 +1,86 @@
+package mx.gob.cofepris.cos.deds.dynamicRowsLoader;
+
+
+/*
+ * How the tiles are wrapped into lines for a given viewport width. The lines take the place of
+ * the rows in the row geometry, while the rows of the cache, the renderer and the view keep
+ * being the tiles; an arrangement is immutable, so the update tasks can share it.
+ */
+class TileArrangement {
+	private final int tilesCount;
+	private final int tileWidth;
+	private final int tileHeight;
+	private final int tilesPerLine;
+
+
+	private TileArrangement(int tilesCount, int tileWidth, int tileHeight, int tilesPerLine) {
+		this.tilesCount = tilesCount;
+		this.tileWidth = tileWidth;
+		this.tileHeight = tileHeight;
+		this.tilesPerLine = tilesPerLine;
+	}
+
+
+	static TileArrangement forViewportWidth(int tilesCount, int tileWidth, int tileHeight, int viewportWidth) {
+		if (tilesCount < 0 || tileWidth < 1 || tileHeight < 1) {
+			throw new IllegalArgumentException("the tiles count can not be negative, and the tile size must be positive");
+		}
+		int tilesPerLine = Math.max(1, viewportWidth / tileWidth);
+		return new TileArrangement(tilesCount, tileWidth, tileHeight, tilesPerLine);
+	}
+
+
+	TileArrangement withViewportWidth(int viewportWidth) {
+		return forViewportWidth(tilesCount, tileWidth, tileHeight, viewportWidth);
+	}
+
+
+	int getTilesCount() {
+		return tilesCount;
+	}
+
+
+	int getTileWidth() {
+		return tileWidth;
+	}
+
+
+	int getTileHeight() {
+		return tileHeight;
+	}
+
+
+	int getTilesPerLine() {
+		return tilesPerLine;
+	}
+
+
+	int getLinesCount() {
+		return (int) (((long) tilesCount + tilesPerLine - 1) / tilesPerLine);
+	}
+
+
+	int getLineWidth() {
+		return (int) Math.min((long) tilesPerLine * tileWidth, Integer.MAX_VALUE);
+	}
+
+
+	int getLineOfTile(int tileIndex) {
+		return tileIndex / tilesPerLine;
+	}
+
+
+	int getFirstTileOfLine(int lineIndex) {
+		return (int) Math.min((long) lineIndex * tilesPerLine, tilesCount);
+	}
+
+
+	int getLastTileOfLine(int lineIndex) {
+		return (int) Math.min(((long) lineIndex + 1) * tilesPerLine, tilesCount) - 1;
+	}
+
+
+	int getTileX(int tileIndex) {
+		return (tileIndex % tilesPerLine) * tileWidth;
+	}
+}
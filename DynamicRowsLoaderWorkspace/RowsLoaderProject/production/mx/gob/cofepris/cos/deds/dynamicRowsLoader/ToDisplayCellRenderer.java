@@ -0,0 +1,57 @@
+package mx.gob.cofepris.cos.deds.dynamicRowsLoader;
+
+import java.awt.Component;
+
+/**
+ * A {@link ToDisplayComponentRenderer} for very wide rows, made of cells arranged in columns.
+ * Instead of building whole rows, the Dynamic Rows Loader API builds the rows itself and asks
+ * this renderer only for the cells that intersect the visible portion of the scroll pane,
+ * plus the column overscan area; the cells of the rest of the columns are not built until the
+ * scroll pane is scrolled horizontally to them.
+ * <br>
+ * The width of each column must be declared through
+ * {@link MultiRowViewRenditionManager#setColumnWidths} or
+ * {@link MultiRowViewRenditionManager#setColumnWidth}, the same way the heights of the rows
+ * are declared.
+ *
+ * @author kijimenez
+ *
+ */
+public interface ToDisplayCellRenderer extends ToDisplayComponentRenderer {
+
+	/**
+	 * Returns the Component that must be displayed at the given row and column. As with
+	 * {@link #retrieveComponent}, it is called away from the event dispatch thread, and it is
+	 * convenient that the Component's construction process does not take too much time.
+	 *
+	 * @param rowIndex the index of the row of the cell.
+	 * @param columnIndex the index of the column of the cell, starting at 0.
+	 *
+	 * @return the component of the cell; it takes the width of its column and the height of its
+	 * row.
+	 */
+	public Component retrieveCell(int rowIndex, int columnIndex);
+
+
+	/**
+	 * Returns the number of columns of the rows. It is only used by {@link #retrieveComponent},
+	 * to build whole rows; the Dynamic Rows Loader API takes the columns from the widths 
+	 * declared to the {@link MultiRowViewRenditionManager}.
+	 *
+	 * @return the number of columns, the cells of each row being retrieved from the column 0.
+	 */
+	public int getColumnCount();
+
+
+	/**
+	 * Builds the whole row at the given index, with the cells of all the columns, each one as
+	 * wide as its preferred width. The Dynamic Rows Loader API does not call this method for 
+	 * this kind of renderer, since it builds the rows itself, holding only the cells of the 
+	 * visible columns; it is provided so the renderer can still be used wherever a plain
+	 * {@link ToDisplayComponentRenderer} is expected.
+	 */
+	@Override
+	public default Component retrieveComponent(int componentIndex) {
+		return VirtualCellsRow.buildWholeRow(this, componentIndex);
+	}
+}
@@ -14,6 +14,13 @@ public interface ToDisplayComponentRenderer {
 	 * Returns the Component that must be displayed at the given index. It is convenient that
 	 * the Component's construction process does not take too much time; otherwise, the loading
 	 * of the rows will be slow.
+	 * <br>
+	 * This method is called on the row-update-thread, never on the event dispatch thread. The
+	 * Component it returns, and the children added to it, are not displayed yet, so they can be
+	 * built there; but the method must not read nor change any Component that is already
+	 * displayed. Once the Component is added to the scroll pane, the Dynamic Rows Loader API
+	 * only changes it on the event dispatch thread. A renderer whose components can only be
+	 * built on the event dispatch thread should implement {@link AsyncToDisplayComponentRenderer}.
 	 * 
 	 * @param componentIndex the index of the component that will be built. This index is 
 	 * based on how many row-heights were registered through the {@link 
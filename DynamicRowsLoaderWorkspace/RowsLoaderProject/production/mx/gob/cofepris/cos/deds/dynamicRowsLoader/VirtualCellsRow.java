@@ -0,0 +1,132 @@
+package mx.gob.cofepris.cos.deds.dynamicRowsLoader;
+
+import java.awt.Component;
+import java.awt.Dimension;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.swing.JPanel;
+
+
+/*
+ * A row that only holds the cells of a range of columns. The cells are built away from the
+ * event dispatch thread by prepareCells, and displayed, on the event dispatch thread, by
+ * mountCells; each cell is placed at the offset of its column, as the rows are placed by the
+ * VirtualRowsLayout, so the row keeps the width of all the columns.
+ */
+class VirtualCellsRow extends JPanel {
+	private static final long serialVersionUID = 1L;
+	private TreeMap<Integer, Component> builtCellsMap = new TreeMap<>();
+	private TreeMap<Integer, Component> mountedCellsMap = new TreeMap<>();
+	private RowGeometry columnGeometry;
+
+
+	VirtualCellsRow() {
+		super(null);
+	}
+
+
+	/*
+	 * A row out of the MultiRowViewRenditionManager, with every column, where each column takes
+	 * the preferred width of its cell.
+	 */
+	static VirtualCellsRow buildWholeRow(ToDisplayCellRenderer toDisplayCellRenderer, int rowIndex) {
+		int lastColumnIndex = toDisplayCellRenderer.getColumnCount() - 1;
+		VirtualCellsRow wholeRow = new VirtualCellsRow();
+		wholeRow.prepareCells(toDisplayCellRenderer, rowIndex, 0, lastColumnIndex);
+		RowGeometryIndex columnGeometry = new RowGeometryIndex();
+		for (Component cell : wholeRow.builtCellsMap.values()) {
+			columnGeometry.addHeight(Math.max(0, cell.getPreferredSize().width));
+		}
+		wholeRow.mountCells(columnGeometry, 0, lastColumnIndex);
+		return wholeRow;
+	}
+
+
+	void prepareCells(ToDisplayCellRenderer toDisplayCellRenderer, int rowIndex, int firstColumnIndex,
+			int lastColumnIndex) {
+		for (int columnIndex = firstColumnIndex ; columnIndex <= lastColumnIndex ; columnIndex++) {
+			if (isCellBuilt(columnIndex)) {continue;}
+			Component cell = toDisplayCellRenderer.retrieveCell(rowIndex, columnIndex);
+			if (cell == null) {
+				throw new IllegalStateException("the renderer returned no cell for the row " + rowIndex
+						+ " and the column " + columnIndex);
+			}
+			putBuiltCell(columnIndex, cell);
+		}
+	}
+
+
+	/*
+	 * Displays the built cells of the range; the cells out of it are removed and discarded,
+	 * while the ones that stay displayed are not added again.
+	 */
+	void mountCells(RowGeometry columnGeometry, int firstColumnIndex, int lastColumnIndex) {
+		this.columnGeometry = columnGeometry;
+		TreeMap<Integer, Component> targetCellsMap = takeBuiltCells(firstColumnIndex, lastColumnIndex);
+		for (Map.Entry<Integer, Component> mountedCell : mountedCellsMap.entrySet()) {
+			if (targetCellsMap.get(mountedCell.getKey()) != mountedCell.getValue()) {
+				remove(mountedCell.getValue());
+			}
+		}
+		for (Component targetCell : targetCellsMap.values()) {
+			if (targetCell.getParent() != this) {
+				add(targetCell);
+			}
+		}
+		mountedCellsMap = targetCellsMap;
+		invalidate();
+	}
+
+
+	@Override
+	public void doLayout() {
+		if (columnGeometry == null) {return;}
+		for (Map.Entry<Integer, Component> mountedCell : mountedCellsMap.entrySet()) {
+			int columnIndex = mountedCell.getKey();
+			if (columnIndex >= columnGeometry.size()) {
+				mountedCell.getValue().setBounds(0, 0, 0, 0);
+				continue;
+			}
+			int cellX = (int) Math.min(columnGeometry.getOffset(columnIndex), Integer.MAX_VALUE);
+			mountedCell.getValue().setBounds(cellX, 0, columnGeometry.getHeight(columnIndex), getHeight());
+		}
+	}
+
+
+	/*
+	 * The row is as wide as all the columns, and as tall as its tallest displayed cell.
+	 */
+	@Override
+	public Dimension getPreferredSize() {
+		if (isPreferredSizeSet()) {
+			return super.getPreferredSize();
+		}
+		int rowWidth = columnGeometry == null ? 0 : (int) Math.min(columnGeometry.getTotalHeight(), Integer.MAX_VALUE);
+		int rowHeight = 0;
+		for (Component mountedCell : mountedCellsMap.values()) {
+			rowHeight = Math.max(rowHeight, mountedCell.getPreferredSize().height);
+		}
+		return new Dimension(rowWidth, rowHeight);
+	}
+
+
+	private synchronized boolean isCellBuilt(int columnIndex) {
+		return builtCellsMap.containsKey(columnIndex);
+	}
+
+
+	private synchronized void putBuiltCell(int columnIndex, Component cell) {
+		builtCellsMap.put(columnIndex, cell);
+	}
+
+
+	private synchronized TreeMap<Integer, Component> takeBuiltCells(int firstColumnIndex, int lastColumnIndex) {
+		if (lastColumnIndex < firstColumnIndex) {
+			builtCellsMap.clear();
+		} else {
+			builtCellsMap.headMap(firstColumnIndex).clear();
+			builtCellsMap.tailMap(lastColumnIndex, false).clear();
+		}
+		return new TreeMap<>(builtCellsMap);
+	}
+}
@@ -0,0 +1,143 @@
+package mx.gob.cofepris.cos.deds.dynamicRowsLoader;
+
+import java.awt.*;
+import java.util.*;
+
+
+class VirtualRowsLayout implements LayoutManager2 {
+	private Map<Component, Integer> rowIndexesMap = new HashMap<>();
+	private RowGeometry rowGeometry;
+	private TileArrangement tileArrangement;
+	private VirtualViewCoordinates virtualViewCoordinates = new VirtualViewCoordinates();
+
+
+	void setRowGeometry(RowGeometry rowGeometry) {
+		this.rowGeometry = rowGeometry;
+	}
+
+
+	/*
+	 * With a tile arrangement, the index of each component is the index of its tile, and the
+	 * geometry holds the lines of tiles.
+	 */
+	void setTileArrangement(TileArrangement tileArrangement) {
+		this.tileArrangement = tileArrangement;
+	}
+
+
+	void setVirtualViewCoordinates(VirtualViewCoordinates virtualViewCoordinates) {
+		this.virtualViewCoordinates = virtualViewCoordinates;
+	}
+
+
+	void setRowIndex(Component component, int rowIndex) {
+		if (rowIndexesMap.containsKey(component)) {
+			rowIndexesMap.put(component, rowIndex);
+		}
+	}
+
+
+	@Override
+	public void addLayoutComponent(Component component, Object constraints) {
+		if (!(constraints instanceof Integer)) {
+			throw new IllegalArgumentException("the constraints must be the row index of the component");
+		}
+		rowIndexesMap.put(component, (Integer) constraints);
+	}
+
+
+	@Override
+	public void addLayoutComponent(String name, Component component) {
+		throw new IllegalArgumentException("the components require the row index as constraints");
+	}
+
+
+	@Override
+	public void removeLayoutComponent(Component component) {
+		rowIndexesMap.remove(component);
+	}
+
+
+	@Override
+	public void layoutContainer(Container parent) {
+		if (rowGeometry == null) {return;}
+		Insets insets = parent.getInsets();
+		if (tileArrangement != null) {
+			layoutTiles(parent, insets);
+			return;
+		}
+		int rowWidth = parent.getWidth() - insets.left - insets.right;
+		for (Component component : parent.getComponents()) {
+			Integer rowIndex = rowIndexesMap.get(component);
+			if (rowIndex == null || rowIndex >= rowGeometry.size()) {
+				component.setBounds(0, 0, 0, 0);
+				continue;
+			}
+			int rowY = insets.top + virtualViewCoordinates.toPhysicalY(rowGeometry.getOffset(rowIndex));
+			component.setBounds(insets.left, rowY, rowWidth, rowGeometry.getHeight(rowIndex));
+		}
+	}
+
+
+	private void layoutTiles(Container parent, Insets insets) {
+		for (Component component : parent.getComponents()) {
+			Integer tileIndex = rowIndexesMap.get(component);
+			int lineIndex = tileIndex == null ? -1 : tileArrangement.getLineOfTile(tileIndex);
+			if (lineIndex < 0 || tileIndex >= tileArrangement.getTilesCount() || lineIndex >= rowGeometry.size()) {
+				component.setBounds(0, 0, 0, 0);
+				continue;
+			}
+			int lineY = insets.top + virtualViewCoordinates.toPhysicalY(rowGeometry.getOffset(lineIndex));
+			component.setBounds(insets.left + tileArrangement.getTileX(tileIndex), lineY, 
+					tileArrangement.getTileWidth(), rowGeometry.getHeight(lineIndex));
+		}
+	}
+
+
+	/*
+	 * The tiles are never wider than the line, so they never require horizontal scrolling.
+	 */
+	@Override
+	public Dimension preferredLayoutSize(Container parent) {
+		Insets insets = parent.getInsets();
+		int rowsWidth = 0;
+		if (tileArrangement != null) {
+			rowsWidth = tileArrangement.getLineWidth();
+		} else {
+			for (Component component : parent.getComponents()) {
+				rowsWidth = Math.max(rowsWidth, component.getPreferredSize().width);
+			}
+		}
+		long rowsHeight = rowGeometry == null ? 0 : virtualViewCoordinates.getPhysicalHeight();
+		long height = Math.min(Integer.MAX_VALUE, rowsHeight + insets.top + insets.bottom);
+		return new Dimension(rowsWidth + insets.left + insets.right, (int) height);
+	}
+
+
+	@Override
+	public Dimension minimumLayoutSize(Container parent) {
+		return preferredLayoutSize(parent);
+	}
+
+
+	@Override
+	public Dimension maximumLayoutSize(Container target) {
+		return new Dimension(Integer.MAX_VALUE, Integer.MAX_VALUE);
+	}
+
+
+	@Override
+	public float getLayoutAlignmentX(Container target) {
+		return 0;
+	}
+
+
+	@Override
+	public float getLayoutAlignmentY(Container target) {
+		return 0;
+	}
+
+
+	@Override
+	public void invalidateLayout(Container target) {}
+}
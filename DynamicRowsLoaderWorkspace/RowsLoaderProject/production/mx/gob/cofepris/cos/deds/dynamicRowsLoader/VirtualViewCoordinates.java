@@ -0,0 +1,146 @@
+package mx.gob.cofepris.cos.deds.dynamicRowsLoader;
+
+
+/*
+ * Maps the 64-bit offsets of the rows onto a view whose height never exceeds the maximum
+ * physical height. While the rows fit in it, both coordinates are the same. Otherwise, the
+ * view position and the virtual position are anchored to each other: small moves of the view
+ * move the virtual position by the same amount, and then the view is re-anchored to the
+ * position that corresponds to the virtual one in the scaled mapping, so the scroll bar keeps
+ * reflecting it. Dragging the scroll bar follows the scaled mapping directly.
+ *
+ * The scaled mapping is one to one within an edge zone at the top and at the bottom of the
+ * view, so small moves near the edges are never clamped by the bounds of the view.
+ */
+class VirtualViewCoordinates {
+	static final int DEFAULT_MAXIMUM_PHYSICAL_HEIGHT = 1 << 24;
+	private int maximumPhysicalHeight = DEFAULT_MAXIMUM_PHYSICAL_HEIGHT;
+	private RowGeometry rowGeometry;
+	private long anchoredVirtualY = 0;
+	private int anchoredPhysicalY = 0;
+
+
+	synchronized void setRowGeometry(RowGeometry rowGeometry) {
+		this.rowGeometry = rowGeometry;
+	}
+
+
+	synchronized void setMaximumPhysicalHeight(int maximumPhysicalHeight) {
+		this.maximumPhysicalHeight = maximumPhysicalHeight;
+	}
+
+
+	synchronized void reset() {
+		anchoredVirtualY = 0;
+		anchoredPhysicalY = 0;
+	}
+
+
+	synchronized int getPhysicalHeight() {
+		return (int) Math.min(getVirtualHeight(), maximumPhysicalHeight);
+	}
+
+
+	synchronized boolean isScaled() {
+		return getVirtualHeight() > maximumPhysicalHeight;
+	}
+
+
+	synchronized long getVirtualOrigin() {
+		return isScaled() ? anchoredVirtualY - anchoredPhysicalY : 0;
+	}
+
+
+	synchronized long getAnchoredVirtualY() {
+		return anchoredVirtualY;
+	}
+
+
+	synchronized long toVirtualY(int physicalY) {
+		return physicalY + getVirtualOrigin();
+	}
+
+
+	synchronized int toPhysicalY(long virtualY) {
+		long physicalY = virtualY - getVirtualOrigin();
+		return (int) Math.max(Integer.MIN_VALUE / 2, Math.min(Integer.MAX_VALUE / 2, physicalY));
+	}
+
+
+	/*
+	 * Returns the position the view must take to stay anchored; it only differs from the given
+	 * one after a small move of a scaled view.
+	 */
+	synchronized int followPhysicalY(int physicalY, int extentHeight, boolean isDragging) {
+		if (!isScaled()) {
+			anchoredVirtualY = physicalY;
+			anchoredPhysicalY = physicalY;
+			return physicalY;
+		}
+		int physicalDelta = physicalY - anchoredPhysicalY;
+		if (isDragging || Math.abs(physicalDelta) > 2 * extentHeight) {
+			anchoredVirtualY = scaleToVirtualY(physicalY, extentHeight);
+			anchoredPhysicalY = physicalY;
+		} else {
+			anchoredVirtualY = clampVirtualY(anchoredVirtualY + physicalDelta, extentHeight);
+			anchoredPhysicalY = scaleToPhysicalY(anchoredVirtualY, extentHeight);
+		}
+		return anchoredPhysicalY;
+	}
+
+
+	synchronized int anchorVirtualY(long virtualY, int extentHeight) {
+		if (!isScaled()) {
+			anchoredVirtualY = Math.max(0, virtualY);
+			anchoredPhysicalY = (int) Math.min(anchoredVirtualY, Integer.MAX_VALUE);
+			return anchoredPhysicalY;
+		}
+		anchoredVirtualY = clampVirtualY(virtualY, extentHeight);
+		anchoredPhysicalY = scaleToPhysicalY(anchoredVirtualY, extentHeight);
+		return anchoredPhysicalY;
+	}
+
+
+	private long getVirtualHeight() {
+		return rowGeometry == null ? 0 : rowGeometry.getTotalHeight();
+	}
+
+
+	private long clampVirtualY(long virtualY, int extentHeight) {
+		return Math.max(0, Math.min(virtualY, getVirtualHeight() - extentHeight));
+	}
+
+
+	private int getEdgeZoneHeight(int extentHeight) {
+		return Math.min(2 * Math.max(extentHeight, 1), maximumPhysicalHeight / 8);
+	}
+
+
+	private long scaleToVirtualY(int physicalY, int extentHeight) {
+		long maximumVirtualY = Math.max(0, getVirtualHeight() - extentHeight);
+		int maximumPhysicalY = Math.max(0, getPhysicalHeight() - extentHeight);
+		int edgeZoneHeight = getEdgeZoneHeight(extentHeight);
+		if (physicalY <= edgeZoneHeight) {
+			return Math.max(0, physicalY);
+		} else if (physicalY >= maximumPhysicalY - edgeZoneHeight) {
+			return Math.max(0, maximumVirtualY - (maximumPhysicalY - Math.min(physicalY, maximumPhysicalY)));
+		}
+		double scale = (double) (maximumVirtualY - 2 * edgeZoneHeight) / (maximumPhysicalY - 2 * edgeZoneHeight);
+		return edgeZoneHeight + Math.round((physicalY - edgeZoneHeight) * scale);
+	}
+
+
+	private int scaleToPhysicalY(long virtualY, int extentHeight) {
+		long maximumVirtualY = Math.max(0, getVirtualHeight() - extentHeight);
+		int maximumPhysicalY = Math.max(0, getPhysicalHeight() - extentHeight);
+		int edgeZoneHeight = getEdgeZoneHeight(extentHeight);
+		if (virtualY <= edgeZoneHeight) {
+			return (int) virtualY;
+		} else if (virtualY >= maximumVirtualY - edgeZoneHeight) {
+			return (int) (maximumPhysicalY - (maximumVirtualY - virtualY));
+		}
+		double scale = (double) (maximumPhysicalY - 2 * edgeZoneHeight) / (maximumVirtualY - 2 * edgeZoneHeight);
+		int physicalY = edgeZoneHeight + (int) Math.floor((virtualY - edgeZoneHeight) * scale);
+		return Math.max(edgeZoneHeight, Math.min(physicalY, maximumPhysicalY - edgeZoneHeight));
+	}
+}
@@ -0,0 +1,181 @@
+package mx.gob.cofepris.cos.deds.dynamicRowsLoader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.Test;
+
+
+/*
+ * Every geometry is written from a RowGeometryIndex, opened again, and compared row by row
+ * with the index it was written from.
+ */
+public class MappedRowGeometryTest {
+	private static final int CHECKPOINT_INTERVAL = 1024;
+	private Random random = new Random(20240702L);
+
+
+	@Test
+	public void reopenedGeometryMatchesWrittenOne() throws IOException {
+		RowGeometryIndex rowGeometryIndex = new RowGeometryIndex();
+		for (int rowIndex = 0 ; rowIndex < 5 * CHECKPOINT_INTERVAL + 7 ; rowIndex++) {
+			rowGeometryIndex.addHeight(random.nextInt(4) == 0 ? 0 : random.nextInt(80));
+		}
+		assertMatches("odd rows count", rowGeometryIndex, writeAndOpen(rowGeometryIndex));
+		rowGeometryIndex.addHeight(33);
+		assertMatches("even rows count", rowGeometryIndex, writeAndOpen(rowGeometryIndex));
+	}
+
+
+	@Test
+	public void checkpointsHoldTheOffsetsOfTheirRows() throws IOException {
+		RowGeometryIndex rowGeometryIndex = new RowGeometryIndex();
+		rowGeometryIndex.resetToEstimatedRows(3 * CHECKPOINT_INTERVAL, 0);
+		rowGeometryIndex.setHeight(CHECKPOINT_INTERVAL - 1, 10);
+		rowGeometryIndex.setHeight(CHECKPOINT_INTERVAL, 20);
+		rowGeometryIndex.setHeight(2 * CHECKPOINT_INTERVAL + 1, 30);
+		MappedRowGeometry mappedRowGeometry = writeAndOpen(rowGeometryIndex);
+		assertMatches("sparse", rowGeometryIndex, mappedRowGeometry);
+		assertEquals("first checkpoint row", 10, mappedRowGeometry.getOffset(CHECKPOINT_INTERVAL));
+		assertEquals("second checkpoint row", 30, mappedRowGeometry.getOffset(2 * CHECKPOINT_INTERVAL));
+		assertEquals("before the first checkpoint", CHECKPOINT_INTERVAL - 1, mappedRowGeometry.indexAtY(9));
+		assertEquals("on the first checkpoint", CHECKPOINT_INTERVAL, mappedRowGeometry.indexAtY(10));
+		assertEquals("empty rows after a checkpoint", 2 * CHECKPOINT_INTERVAL + 1, mappedRowGeometry.indexAtY(30));
+	}
+
+
+	@Test
+	public void emptyGeometry() throws IOException {
+		MappedRowGeometry mappedRowGeometry = writeAndOpen(new RowGeometryIndex());
+		assertEquals("no row", 0, mappedRowGeometry.size());
+		assertEquals("no height", 0, mappedRowGeometry.getTotalHeight());
+		assertEquals("no row at zero", -1, mappedRowGeometry.indexAtY(0));
+	}
+
+
+	@Test
+	public void foreignFilesAreRejected() throws IOException {
+		Path file = Files.createTempFile("row-geometry", ".bin");
+		try {
+			Files.write(file, new byte[] {1, 2, 3});
+			assertNotOpened("shorter than the header", file);
+			MappedRowGeometry.write(newRows(100), file);
+			try (RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "rw")) {
+				randomAccessFile.setLength(randomAccessFile.length() - 8);
+			}
+			assertNotOpened("truncated", file);
+			MappedRowGeometry.write(newRows(100), file);
+			try (RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "rw")) {
+				randomAccessFile.writeInt(0);
+			}
+			assertNotOpened("wrong magic", file);
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+
+	/*
+	 * A file of more than 1 GiB is mapped in several segments. The file is written sparse,
+	 * with the same layout the geometry writes, so only the few rows with a height, around the
+	 * end of the first segment, and the checkpoint that follows them take space on the disk.
+	 */
+	@Test
+	public void rowsBeyondTheFirstSegment() throws IOException {
+		int rowsCount = (1 << 28) + 1000;
+		int segmentEndRow = ((1 << 30) - 24) / 4;
+		int[] heightRows = {segmentEndRow - 1, segmentEndRow, segmentEndRow + 1};
+		int[] heights = {5, 7, 9};
+		int checkpointsCount = (rowsCount + CHECKPOINT_INTERVAL - 1) / CHECKPOINT_INTERVAL;
+		long checkpointsPosition = 24 + 8L * ((rowsCount + 1) / 2);
+		Path file = Files.createTempFile("row-geometry", ".bin");
+		try {
+			try (OutputStream fileStream = Files.newOutputStream(file);
+					DataOutputStream dataStream = new DataOutputStream(fileStream)) {
+				dataStream.writeInt(0x44524C47);
+				dataStream.writeInt(1);
+				dataStream.writeInt(rowsCount);
+				dataStream.writeInt(CHECKPOINT_INTERVAL);
+				dataStream.writeLong(21);
+			}
+			try (RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "rw")) {
+				randomAccessFile.setLength(checkpointsPosition + 8L * checkpointsCount);
+				for (int position = 0 ; position < heightRows.length ; position++) {
+					randomAccessFile.seek(24 + 4L * heightRows[position]);
+					randomAccessFile.writeInt(heights[position]);
+				}
+				for (int checkpointIndex = segmentEndRow / CHECKPOINT_INTERVAL + 1 ; checkpointIndex < checkpointsCount ;
+						checkpointIndex++) {
+					randomAccessFile.seek(checkpointsPosition + 8L * checkpointIndex);
+					randomAccessFile.writeLong(21);
+				}
+			}
+			MappedRowGeometry mappedRowGeometry = MappedRowGeometry.open(file);
+			assertEquals("size", rowsCount, mappedRowGeometry.size());
+			assertEquals("last row of the first segment", 5, mappedRowGeometry.getHeight(segmentEndRow - 1));
+			assertEquals("first row of the second segment", 7, mappedRowGeometry.getHeight(segmentEndRow));
+			assertEquals("offset in the second segment", 12, mappedRowGeometry.getOffset(segmentEndRow + 1));
+			assertEquals("offset after the checkpoint", 21, mappedRowGeometry.getOffset(rowsCount - 1));
+			assertEquals("index at zero", segmentEndRow - 1, mappedRowGeometry.indexAtY(0));
+			assertEquals("index across the segments", segmentEndRow, mappedRowGeometry.indexAtY(5));
+			assertEquals("index in the second segment", segmentEndRow + 1, mappedRowGeometry.indexAtY(20));
+			assertEquals("index at the total height", rowsCount - 1, mappedRowGeometry.indexAtY(21));
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+
+	private RowGeometryIndex newRows(int rowsCount) {
+		RowGeometryIndex rowGeometryIndex = new RowGeometryIndex();
+		for (int rowIndex = 0 ; rowIndex < rowsCount ; rowIndex++) {
+			rowGeometryIndex.addHeight(1 + random.nextInt(40));
+		}
+		return rowGeometryIndex;
+	}
+
+
+	private static MappedRowGeometry writeAndOpen(RowGeometry rowGeometry) throws IOException {
+		Path file = Files.createTempFile("row-geometry", ".bin");
+		try {
+			MappedRowGeometry.write(rowGeometry, file);
+			return MappedRowGeometry.open(file);
+		} finally {
+			file.toFile().deleteOnExit();
+		}
+	}
+
+
+	private static void assertNotOpened(String description, Path file) {
+		try {
+			MappedRowGeometry.open(file);
+			fail(description + ": the file was opened");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+
+	private static void assertMatches(String description, RowGeometry expectedGeometry, RowGeometry rowGeometry) {
+		assertEquals(description + ": size", expectedGeometry.size(), rowGeometry.size());
+		assertEquals(description + ": total height", expectedGeometry.getTotalHeight(), rowGeometry.getTotalHeight());
+		for (int rowIndex = 0 ; rowIndex < expectedGeometry.size() ; rowIndex++) {
+			String rowDescription = description + ": row " + rowIndex;
+			long offset = expectedGeometry.getOffset(rowIndex);
+			assertEquals(rowDescription + " height", expectedGeometry.getHeight(rowIndex), rowGeometry.getHeight(rowIndex));
+			assertEquals(rowDescription + " offset", offset, rowGeometry.getOffset(rowIndex));
+			for (long y : new long[] {offset - 1, offset, offset + expectedGeometry.getHeight(rowIndex) - 1}) {
+				assertEquals(rowDescription + " index at " + y, expectedGeometry.indexAtY(y), rowGeometry.indexAtY(y));
+			}
+		}
+		assertEquals(description + ": index at the total height", expectedGeometry.indexAtY(expectedGeometry.getTotalHeight()),
+				rowGeometry.indexAtY(expectedGeometry.getTotalHeight()));
+	}
+}
@@ -0,0 +1,78 @@
+package mx.gob.cofepris.cos.deds.dynamicRowsLoader;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+
+/*
+ * The leading extent lies on the side the screen moves to, and the trailing one on the side it
+ * leaves behind.
+ */
+public class OverscanPolicyTest {
+
+
+	@Test
+	public void noOverscanKeepsTheVisibleRows() {
+		RowGeometryIndex rowGeometryIndex = newRows(100, 20);
+		assertEquals("first", 10, OverscanPolicy.NONE.resolveFirstIndex(rowGeometryIndex, 10, true));
+		assertEquals("last", 15, OverscanPolicy.NONE.resolveLastIndex(rowGeometryIndex, 15, true));
+	}
+
+
+	@Test
+	public void rowsAreWeightedTowardTheMove() {
+		RowGeometryIndex rowGeometryIndex = newRows(100, 20);
+		OverscanPolicy overscanPolicy = OverscanPolicy.ofRows(6, 2);
+		assertEquals("behind, going down", 8, overscanPolicy.resolveFirstIndex(rowGeometryIndex, 10, true));
+		assertEquals("ahead, going down", 21, overscanPolicy.resolveLastIndex(rowGeometryIndex, 15, true));
+		assertEquals("ahead, going up", 4, overscanPolicy.resolveFirstIndex(rowGeometryIndex, 10, false));
+		assertEquals("behind, going up", 17, overscanPolicy.resolveLastIndex(rowGeometryIndex, 15, false));
+	}
+
+
+	@Test
+	public void rowsAreClampedToTheGeometry() {
+		RowGeometryIndex rowGeometryIndex = newRows(100, 20);
+		OverscanPolicy overscanPolicy = OverscanPolicy.ofRows(Integer.MAX_VALUE, 5);
+		assertEquals("before the first row", 0, overscanPolicy.resolveFirstIndex(rowGeometryIndex, 3, false));
+		assertEquals("beyond the last row", 99, overscanPolicy.resolveLastIndex(rowGeometryIndex, 97, true));
+	}
+
+
+	@Test
+	public void pixelsFollowTheHeightsOfTheRows() {
+		RowGeometryIndex rowGeometryIndex = newRows(100, 20);
+		rowGeometryIndex.setHeight(9, 100);
+		OverscanPolicy overscanPolicy = OverscanPolicy.ofPixels(50, 30);
+		assertEquals("behind, going down", 9, overscanPolicy.resolveFirstIndex(rowGeometryIndex, 10, true));
+		assertEquals("ahead, going up", 9, overscanPolicy.resolveFirstIndex(rowGeometryIndex, 10, false));
+		assertEquals("ahead, going down", 18, overscanPolicy.resolveLastIndex(rowGeometryIndex, 15, true));
+		assertEquals("behind, going up", 17, overscanPolicy.resolveLastIndex(rowGeometryIndex, 15, false));
+	}
+
+
+	@Test
+	public void pixelsAreClampedToTheGeometry() {
+		RowGeometryIndex rowGeometryIndex = newRows(100, 20);
+		OverscanPolicy overscanPolicy = OverscanPolicy.ofPixels(1000, 1000);
+		assertEquals("before the first row", 0, overscanPolicy.resolveFirstIndex(rowGeometryIndex, 2, true));
+		assertEquals("beyond the last row", 99, overscanPolicy.resolveLastIndex(rowGeometryIndex, 98, true));
+	}
+
+
+	@Test
+	public void negativeExtentsAreIgnored() {
+		RowGeometryIndex rowGeometryIndex = newRows(100, 20);
+		OverscanPolicy overscanPolicy = OverscanPolicy.ofPixels(-50, -50);
+		assertEquals("first", 10, overscanPolicy.resolveFirstIndex(rowGeometryIndex, 10, true));
+		assertEquals("last", 15, overscanPolicy.resolveLastIndex(rowGeometryIndex, 15, true));
+	}
+
+
+	private static RowGeometryIndex newRows(int rowsCount, int height) {
+		RowGeometryIndex rowGeometryIndex = new RowGeometryIndex();
+		rowGeometryIndex.resetToEstimatedRows(rowsCount, height);
+		return rowGeometryIndex;
+	}
+}
@@ -0,0 +1,141 @@
+package mx.gob.cofepris.cos.deds.dynamicRowsLoader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.junit.Test;
+
+
+/*
+ * The background loads are handed to an executor that only queues them, so each test decides
+ * when, and whether, they run. The rows of every page are their own indexes.
+ */
+public class PagedRowDataCacheTest {
+	private static final int PAGE_SIZE = 10;
+	private List<Integer> loadedPages = new ArrayList<>();
+	private List<Runnable> queuedLoads = new ArrayList<>();
+	private int failingPageIndex = -1;
+	private PagedRowDataCache<Integer> pagedRowDataCache = new PagedRowDataCache<>(this::loadPage, PAGE_SIZE);
+
+
+	public PagedRowDataCacheTest() {
+		pagedRowDataCache.setLoadingExecutor(queuedLoads::add);
+	}
+
+
+	@Test
+	public void rowsAcrossPagesAreLoadedOnce() {
+		pagedRowDataCache.setAdjacentPagePrefetchEnabled(false);
+		assertEquals("rows", Arrays.asList(8, 9, 10, 11), pagedRowDataCache.getRowsData(8, 12));
+		assertEquals("kept rows", Integer.valueOf(15), pagedRowDataCache.getRowData(15));
+		assertEquals("loaded pages", Arrays.asList(0, 1), loadedPages);
+		assertTrue("no background load", queuedLoads.isEmpty());
+	}
+
+
+	@Test
+	public void adjacentPageIsPrefetchedInTheDirectionOfTheRequests() {
+		pagedRowDataCache.getRowData(25);
+		assertEquals("prefetch going down", 1, queuedLoads.size());
+		runQueuedLoads();
+		assertEquals("loaded pages going down", Arrays.asList(2, 3), loadedPages);
+		pagedRowDataCache.getRowData(15);
+		runQueuedLoads();
+		assertEquals("loaded pages going up", Arrays.asList(2, 3, 1, 0), loadedPages);
+		pagedRowDataCache.getRowsData(0, 40);
+		assertEquals("prefetched pages are kept", Arrays.asList(2, 3, 1, 0), loadedPages);
+	}
+
+
+	/*
+	 * The page is requested in the background and then needed right away: the calling thread
+	 * loads it instead of waiting for the executor, and the queued load does nothing.
+	 */
+	@Test
+	public void queuedPageIsLoadedOnTheCallingThread() throws Exception {
+		pagedRowDataCache.setAdjacentPagePrefetchEnabled(false);
+		CompletableFuture<Integer> rowDataFuture = pagedRowDataCache.getRowDataAsync(42);
+		assertFalse("queued", rowDataFuture.isDone());
+		assertEquals("row", Integer.valueOf(43), pagedRowDataCache.getRowData(43));
+		assertEquals("row of the future", Integer.valueOf(42), rowDataFuture.get());
+		runQueuedLoads();
+		assertEquals("loaded pages", Arrays.asList(4), loadedPages);
+	}
+
+
+	@Test
+	public void failedPageIsLoadedAgain() throws InterruptedException {
+		pagedRowDataCache.setAdjacentPagePrefetchEnabled(false);
+		failingPageIndex = 1;
+		try {
+			pagedRowDataCache.getRowData(12);
+			fail("the failure of the source was not thrown");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		CompletableFuture<Integer> rowDataFuture = pagedRowDataCache.getRowDataAsync(13);
+		runQueuedLoads();
+		try {
+			rowDataFuture.get();
+			fail("the future did not fail");
+		} catch (ExecutionException e) {
+			assertTrue("cause", e.getCause() instanceof IllegalStateException);
+		}
+		failingPageIndex = -1;
+		assertEquals("row", Integer.valueOf(12), pagedRowDataCache.getRowData(12));
+		assertEquals("loaded pages", Arrays.asList(1, 1, 1), loadedPages);
+	}
+
+
+	@Test
+	public void leastRecentlyUsedPagesAreDiscarded() {
+		pagedRowDataCache.setAdjacentPagePrefetchEnabled(false);
+		pagedRowDataCache.setMaximumCachedPages(2);
+		pagedRowDataCache.getRowData(0);
+		pagedRowDataCache.getRowData(10);
+		pagedRowDataCache.getRowData(1);
+		pagedRowDataCache.getRowData(20);
+		pagedRowDataCache.getRowData(2);
+		pagedRowDataCache.getRowData(11);
+		assertEquals("loaded pages", Arrays.asList(0, 1, 2, 1), loadedPages);
+		pagedRowDataCache.clear();
+		pagedRowDataCache.getRowData(0);
+		assertEquals("loaded pages after clearing", Arrays.asList(0, 1, 2, 1, 0), loadedPages);
+	}
+
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void rowBeyondTheLastPageIsRejected() {
+		pagedRowDataCache.setAdjacentPagePrefetchEnabled(false);
+		pagedRowDataCache.getRowData(105);
+	}
+
+
+	private List<Integer> loadPage(int pageIndex, int pageSize) {
+		loadedPages.add(pageIndex);
+		if (pageIndex == failingPageIndex) {
+			throw new IllegalStateException("page " + pageIndex + " failed");
+		}
+		List<Integer> page = new ArrayList<>();
+		for (int rowIndex = pageIndex * pageSize ; rowIndex < Math.min(100, (pageIndex + 1) * pageSize) ; rowIndex++) {
+			page.add(rowIndex);
+		}
+		return page;
+	}
+
+
+	private void runQueuedLoads() {
+		List<Runnable> runnableLoads = new ArrayList<>(queuedLoads);
+		queuedLoads.clear();
+		for (Runnable queuedLoad : runnableLoads) {
+			queuedLoad.run();
+		}
+	}
+}
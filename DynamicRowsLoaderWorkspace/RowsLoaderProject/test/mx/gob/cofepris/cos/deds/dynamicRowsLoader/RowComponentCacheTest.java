@@ -0,0 +1,137 @@
+package mx.gob.cofepris.cos.deds.dynamicRowsLoader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Component;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.swing.JLabel;
+import org.junit.Test;
+
+
+/*
+ * The evicted rows are reported by the listener, in the order they were evicted.
+ */
+public class RowComponentCacheTest {
+	private List<Integer> evictedRows = new ArrayList<>();
+	private RowComponentCache rowComponentCache = new RowComponentCache(new RecycledComponentsPool());
+
+
+	public RowComponentCacheTest() {
+		rowComponentCache.setRowEvictionListener((rowIndex, component) -> evictedRows.add(rowIndex));
+	}
+
+
+	@Test
+	public void leastRecentlyUsedRowsAreEvictedFirst() {
+		rowComponentCache.setMaximumRetainedRows(2);
+		Component[] components = putRows(0, 4);
+		assertEquals("before retaining", new ArrayList<>(), evictedRows);
+		assertSame("used row", components[1], rowComponentCache.get(1));
+		rowComponentCache.retainRows(4, 4);
+		assertEquals("evicted", Arrays.asList(0, 2), evictedRows);
+		assertTrue("used row kept", rowComponentCache.containsKey(1));
+		assertTrue("recent row kept", rowComponentCache.containsKey(3));
+		assertTrue("pinned row kept", rowComponentCache.containsKey(4));
+	}
+
+
+	@Test
+	public void pinnedRowsAreNeverEvicted() {
+		putRows(0, 5);
+		rowComponentCache.retainRows(2, 3);
+		assertEquals("evicted", Arrays.asList(0, 1, 4, 5), evictedRows);
+		assertTrue("first pinned row", rowComponentCache.containsKey(2));
+		assertTrue("last pinned row", rowComponentCache.containsKey(3));
+		rowComponentCache.setMemoryBudget(0, component -> 1000);
+		assertTrue("pinned row over the budget", rowComponentCache.containsKey(2));
+	}
+
+
+	@Test
+	public void rowsAreEvictedUntilTheMemoryBudgetIsMet() {
+		rowComponentCache.setMaximumRetainedRows(Integer.MAX_VALUE);
+		rowComponentCache.setMemoryBudget(3000, component -> 1000);
+		putRows(0, 4);
+		rowComponentCache.retainRows(4, 4);
+		assertEquals("evicted", Arrays.asList(0, 1), evictedRows);
+		rowComponentCache.setMemoryBudget(1000, component -> 1000);
+		assertEquals("evicted with the smaller budget", Arrays.asList(0, 1, 2, 3), evictedRows);
+		assertTrue("pinned row kept", rowComponentCache.containsKey(4));
+	}
+
+
+	@Test
+	public void demotedRowsArePromotedWhenRequested() {
+		rowComponentCache.setSoftReferenceDemotionEnabled(true);
+		Component[] components = putRows(0, 2);
+		rowComponentCache.retainRows(2, 2);
+		assertEquals("demoted rows are not evicted", new ArrayList<>(), evictedRows);
+		assertSame("promoted row", components[0], rowComponentCache.get(0));
+		assertTrue("promoted row is kept", rowComponentCache.containsKey(0));
+		rowComponentCache.retainRows(2, 2);
+		rowComponentCache.setSoftReferenceDemotionEnabled(false);
+		assertEquals("evicted once demotion is disabled", Arrays.asList(0, 1), sorted(evictedRows));
+		assertNull("discarded row", rowComponentCache.get(1));
+	}
+
+
+	@Test
+	public void componentsOfAFormerGenerationAreRejected() {
+		putRows(0, 2);
+		long formerGeneration = rowComponentCache.getGeneration();
+		rowComponentCache.clear();
+		assertEquals("cleared", Arrays.asList(0, 1, 2), sorted(evictedRows));
+		assertFalse("put of a former generation", rowComponentCache.put(5, new JLabel(), formerGeneration));
+		assertFalse("rejected row", rowComponentCache.containsKey(5));
+		assertTrue("put of the current generation", rowComponentCache.put(5, new JLabel(),
+				rowComponentCache.getGeneration()));
+	}
+
+
+	@Test
+	public void rearrangedRowsFollowTheMapping() {
+		Component[] components = putRows(0, 3);
+		long formerGeneration = rowComponentCache.getGeneration();
+		rowComponentCache.rearrangeRows(rowIndex -> rowIndex == 1 ? -1 : rowIndex + 10);
+		assertEquals("removed row", Arrays.asList(1), evictedRows);
+		assertSame("moved row", components[2], rowComponentCache.get(12));
+		assertFalse("former index", rowComponentCache.containsKey(2));
+		assertTrue("generation changed", rowComponentCache.getGeneration() != formerGeneration);
+	}
+
+
+	@Test
+	public void replacedComponentIsNotDiscarded() {
+		Component[] components = putRows(0, 0);
+		rowComponentCache.retainRows(0, 0);
+		JLabel replacement = new JLabel();
+		assertFalse("unexpected component", rowComponentCache.replace(0, new JLabel(), replacement));
+		assertTrue("expected component", rowComponentCache.replace(0, components[0], replacement));
+		assertSame("replacement", replacement, rowComponentCache.get(0));
+		assertEquals("evicted", new ArrayList<>(), evictedRows);
+	}
+
+
+	private Component[] putRows(int firstIndex, int lastIndex) {
+		Component[] components = new Component[lastIndex + 1];
+		for (int rowIndex = firstIndex ; rowIndex <= lastIndex ; rowIndex++) {
+			components[rowIndex] = new JLabel(String.valueOf(rowIndex));
+			assertTrue("put of row " + rowIndex, rowComponentCache.put(rowIndex, components[rowIndex],
+					rowComponentCache.getGeneration()));
+		}
+		return components;
+	}
+
+
+	private static List<Integer> sorted(List<Integer> rows) {
+		List<Integer> sortedRows = new ArrayList<>(rows);
+		sortedRows.sort(null);
+		return sortedRows;
+	}
+}
@@ -0,0 +1,274 @@
+package mx.gob.cofepris.cos.deds.dynamicRowsLoader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntUnaryOperator;
+import org.junit.Test;
+
+
+/*
+ * Every geometry is compared, row by row, with a plain list of heights and its prefix sums.
+ * The rows span several chunks, so the chunk boundaries and the tree of the chunks are
+ * crossed by every test.
+ */
+public class RowGeometryIndexTest {
+	private static final int CHUNK_SIZE = RowGeometryIndex.CHUNK_SIZE;
+	private static final int ROWS_COUNT = 3 * CHUNK_SIZE + 123;
+	private static final int ESTIMATED_HEIGHT = 20;
+	private Random random = new Random(20240611L);
+
+
+	@Test
+	public void appendedHeightsMatchPrefixSums() {
+		RowGeometryIndex rowGeometryIndex = new RowGeometryIndex();
+		List<Integer> heights = new ArrayList<>();
+		for (int rowIndex = 0 ; rowIndex < ROWS_COUNT ; rowIndex++) {
+			int height = random.nextInt(4) == 0 ? 0 : random.nextInt(50);
+			rowGeometryIndex.addHeight(height);
+			heights.add(height);
+		}
+		assertMatches("appended", heights, rowGeometryIndex);
+	}
+
+
+	@Test
+	public void measuredEstimatedRowsMatchPrefixSums() {
+		RowGeometryIndex rowGeometryIndex = new RowGeometryIndex();
+		List<Integer> heights = newEstimatedRows(rowGeometryIndex, ROWS_COUNT);
+		for (int rowIndex : new int[] {0, CHUNK_SIZE - 1, CHUNK_SIZE, 2 * CHUNK_SIZE + 7, ROWS_COUNT - 1}) {
+			setHeight(rowGeometryIndex, heights, rowIndex, 3 + rowIndex % 40);
+		}
+		setRandomHeights(rowGeometryIndex, heights, 300);
+		setHeight(rowGeometryIndex, heights, CHUNK_SIZE, ESTIMATED_HEIGHT);
+		assertMatches("measured", heights, rowGeometryIndex);
+	}
+
+
+	@Test
+	public void resetToHeightsMatchesPrefixSums() {
+		int[] heights = new int[ROWS_COUNT];
+		for (int rowIndex = 0 ; rowIndex < heights.length ; rowIndex++) {
+			heights[rowIndex] = rowIndex / CHUNK_SIZE == 1 ? 15 : 15 + random.nextInt(30);
+		}
+		heights[CHUNK_SIZE - 1] = 0;
+		RowGeometryIndex rowGeometryIndex = new RowGeometryIndex();
+		rowGeometryIndex.resetToHeights(heights);
+		List<Integer> expectedHeights = toList(heights);
+		assertMatches("reset", expectedHeights, rowGeometryIndex);
+		setHeight(rowGeometryIndex, expectedHeights, CHUNK_SIZE + 5, 90);
+		assertMatches("reset, then set", expectedHeights, rowGeometryIndex);
+		rowGeometryIndex.resetToHeights(new int[0]);
+		assertMatches("reset to empty", new ArrayList<>(), rowGeometryIndex);
+	}
+
+
+	@Test
+	public void insertedRowsAcrossChunkBoundary() {
+		RowGeometryIndex rowGeometryIndex = new RowGeometryIndex();
+		List<Integer> heights = newEstimatedRows(rowGeometryIndex, ROWS_COUNT);
+		setRandomHeights(rowGeometryIndex, heights, 500);
+		int index = CHUNK_SIZE - 10;
+		int[] insertedHeights = {7, 0, 33, 41, 5, 9, 0, 12, 64, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12};
+		int rowsCount = insertedHeights.length;
+		rowGeometryIndex.rearrangeRows(index, heights.size() + rowsCount,
+				rowIndex -> rowIndex < index ? rowIndex : rowIndex + rowsCount);
+		for (int position = 0 ; position < rowsCount ; position++) {
+			heights.add(index + position, ESTIMATED_HEIGHT);
+			setHeight(rowGeometryIndex, heights, index + position, insertedHeights[position]);
+		}
+		assertMatches("inserted", heights, rowGeometryIndex);
+	}
+
+
+	@Test
+	public void removedRowsAcrossChunkBoundary() {
+		RowGeometryIndex rowGeometryIndex = new RowGeometryIndex();
+		List<Integer> heights = newEstimatedRows(rowGeometryIndex, ROWS_COUNT);
+		setRandomHeights(rowGeometryIndex, heights, 500);
+		int fromIndex = 2 * CHUNK_SIZE - 300;
+		int toIndex = 2 * CHUNK_SIZE + 50;
+		int rowsCount = toIndex - fromIndex;
+		rowGeometryIndex.rearrangeRows(fromIndex, heights.size() - rowsCount,
+				rowIndex -> rowIndex < fromIndex ? rowIndex : rowIndex < toIndex ? -1 : rowIndex - rowsCount);
+		heights.subList(fromIndex, toIndex).clear();
+		assertMatches("removed", heights, rowGeometryIndex);
+	}
+
+
+	@Test
+	public void movedRowsAcrossChunkBoundary() {
+		RowGeometryIndex rowGeometryIndex = new RowGeometryIndex();
+		List<Integer> heights = newEstimatedRows(rowGeometryIndex, ROWS_COUNT);
+		setRandomHeights(rowGeometryIndex, heights, 500);
+		moveRows(rowGeometryIndex, heights, CHUNK_SIZE - 40, CHUNK_SIZE + 60, 3 * CHUNK_SIZE - 20);
+		assertMatches("moved down", heights, rowGeometryIndex);
+		moveRows(rowGeometryIndex, heights, 3 * CHUNK_SIZE, 3 * CHUNK_SIZE + 100, 5);
+		assertMatches("moved up", heights, rowGeometryIndex);
+	}
+
+
+	@Test
+	public void deferredRebuildMatchesPrefixSums() {
+		RowGeometryIndex rowGeometryIndex = new RowGeometryIndex();
+		List<Integer> heights = newEstimatedRows(rowGeometryIndex, ROWS_COUNT);
+		rowGeometryIndex.beginDeferredRebuild();
+		setRandomHeights(rowGeometryIndex, heights, 200);
+		moveRows(rowGeometryIndex, heights, 10, 200, CHUNK_SIZE);
+		assertMatches("during the deferred rebuild", heights, rowGeometryIndex);
+		setRandomHeights(rowGeometryIndex, heights, 200);
+		rowGeometryIndex.endDeferredRebuild();
+		assertMatches("after the deferred rebuild", heights, rowGeometryIndex);
+	}
+
+
+	@Test
+	public void snapshotIsNotAffectedByLaterChanges() {
+		RowGeometryIndex rowGeometryIndex = new RowGeometryIndex();
+		List<Integer> heights = newEstimatedRows(rowGeometryIndex, ROWS_COUNT);
+		setRandomHeights(rowGeometryIndex, heights, 300);
+		RowGeometrySnapshot snapshot = rowGeometryIndex.snapshot();
+		List<Integer> snapshotHeights = new ArrayList<>(heights);
+		assertSame("unchanged index", snapshot, rowGeometryIndex.snapshot());
+		setRandomHeights(rowGeometryIndex, heights, 300);
+		setHeight(rowGeometryIndex, heights, 0, 99);
+		rowGeometryIndex.addHeight(77);
+		heights.add(77);
+		moveRows(rowGeometryIndex, heights, 0, CHUNK_SIZE + 1, 2 * CHUNK_SIZE);
+		assertMatches("snapshot after the changes", snapshotHeights, snapshot);
+		assertMatches("index after the changes", heights, rowGeometryIndex);
+		RowGeometrySnapshot laterSnapshot = rowGeometryIndex.snapshot();
+		assertNotSame("changed index", snapshot, laterSnapshot);
+		rowGeometryIndex.resetToHeights(new int[] {1, 2, 3});
+		rowGeometryIndex.clear();
+		assertMatches("snapshot after clearing", snapshotHeights, snapshot);
+		assertMatches("later snapshot after clearing", heights, laterSnapshot);
+	}
+
+
+	@Test
+	public void indexAtYSkipsZeroHeightRows() {
+		RowGeometryIndex rowGeometryIndex = new RowGeometryIndex();
+		rowGeometryIndex.resetToEstimatedRows(ROWS_COUNT, 0);
+		List<Integer> heights = new ArrayList<>(Collections.nCopies(ROWS_COUNT, 0));
+		assertEquals("only empty rows", ROWS_COUNT - 1, rowGeometryIndex.indexAtY(0));
+		setHeight(rowGeometryIndex, heights, 1, 10);
+		setHeight(rowGeometryIndex, heights, CHUNK_SIZE + 1, 10);
+		setHeight(rowGeometryIndex, heights, 3 * CHUNK_SIZE, 10);
+		assertEquals("first rows empty", 1, rowGeometryIndex.indexAtY(0));
+		assertEquals("negative position", 1, rowGeometryIndex.indexAtY(-5));
+		assertEquals("span end", CHUNK_SIZE + 1, rowGeometryIndex.indexAtY(10));
+		assertEquals("empty chunk start", 3 * CHUNK_SIZE, rowGeometryIndex.indexAtY(20));
+		assertEquals("total height", ROWS_COUNT - 1, rowGeometryIndex.indexAtY(30));
+		assertMatches("sparse", heights, rowGeometryIndex);
+	}
+
+
+	@Test
+	public void emptyIndex() {
+		RowGeometryIndex rowGeometryIndex = new RowGeometryIndex();
+		assertEquals("no row", -1, rowGeometryIndex.indexAtY(0));
+		assertEquals("no height", 0, rowGeometryIndex.getTotalHeight());
+		assertEquals("no row in the snapshot", -1, rowGeometryIndex.snapshot().indexAtY(0));
+	}
+
+
+	private List<Integer> newEstimatedRows(RowGeometryIndex rowGeometryIndex, int rowsCount) {
+		rowGeometryIndex.resetToEstimatedRows(rowsCount, ESTIMATED_HEIGHT);
+		return new ArrayList<>(Collections.nCopies(rowsCount, ESTIMATED_HEIGHT));
+	}
+
+
+	private void setRandomHeights(RowGeometryIndex rowGeometryIndex, List<Integer> heights, int changesCount) {
+		for (int change = 0 ; change < changesCount ; change++) {
+			int height = random.nextInt(5) == 0 ? 0 : random.nextInt(60);
+			setHeight(rowGeometryIndex, heights, random.nextInt(heights.size()), height);
+		}
+	}
+
+
+	private static void setHeight(RowGeometryIndex rowGeometryIndex, List<Integer> heights, int rowIndex, int height) {
+		rowGeometryIndex.setHeight(rowIndex, height);
+		heights.set(rowIndex, height);
+	}
+
+
+	/*
+	 * The same mapping that MultiRowViewRenditionManager.moveRows gives to the index.
+	 */
+	private static void moveRows(RowGeometryIndex rowGeometryIndex, List<Integer> heights, int fromIndex, int toIndex,
+			int targetIndex) {
+		int rowsCount = toIndex - fromIndex;
+		IntUnaryOperator destinationRowOf = rowIndex -> {
+			if (rowIndex >= fromIndex && rowIndex < toIndex) {
+				return targetIndex + rowIndex - fromIndex;
+			}
+			int remainingIndex = rowIndex < fromIndex ? rowIndex : rowIndex - rowsCount;
+			return remainingIndex < targetIndex ? remainingIndex : remainingIndex + rowsCount;
+		};
+		rowGeometryIndex.rearrangeRows(Math.min(fromIndex, targetIndex), heights.size(), destinationRowOf);
+		List<Integer> movedHeights = new ArrayList<>(heights.subList(fromIndex, toIndex));
+		heights.subList(fromIndex, toIndex).clear();
+		heights.addAll(targetIndex, movedHeights);
+	}
+
+
+	private static List<Integer> toList(int[] heights) {
+		List<Integer> heightsList = new ArrayList<>(heights.length);
+		for (int height : heights) {
+			heightsList.add(height);
+		}
+		return heightsList;
+	}
+
+
+	/*
+	 * Besides every height and offset, the position of every row is looked up at the edges of
+	 * its span, and just above it.
+	 */
+	private static void assertMatches(String description, List<Integer> heights, RowGeometry rowGeometry) {
+		long[] offsets = new long[heights.size() + 1];
+		for (int rowIndex = 0 ; rowIndex < heights.size() ; rowIndex++) {
+			offsets[rowIndex + 1] = offsets[rowIndex] + heights.get(rowIndex);
+		}
+		assertEquals(description + ": size", heights.size(), rowGeometry.size());
+		assertEquals(description + ": total height", offsets[heights.size()], rowGeometry.getTotalHeight());
+		for (int rowIndex = 0 ; rowIndex < heights.size() ; rowIndex++) {
+			String rowDescription = description + ": row " + rowIndex;
+			assertEquals(rowDescription + " height", heights.get(rowIndex).intValue(), rowGeometry.getHeight(rowIndex));
+			assertEquals(rowDescription + " offset", offsets[rowIndex], rowGeometry.getOffset(rowIndex));
+			for (long y : new long[] {offsets[rowIndex] - 1, offsets[rowIndex], offsets[rowIndex + 1] - 1}) {
+				assertEquals(rowDescription + " index at " + y, expectedIndexAtY(offsets, y), rowGeometry.indexAtY(y));
+			}
+		}
+		assertEquals(description + ": index at the total height", expectedIndexAtY(offsets, offsets[heights.size()]),
+				rowGeometry.indexAtY(offsets[heights.size()]));
+	}
+
+
+	/*
+	 * The last row whose offset is not beyond the position: the row whose span contains it,
+	 * since the rows of zero height that share its offset come before it.
+	 */
+	private static int expectedIndexAtY(long[] offsets, long y) {
+		int rowsCount = offsets.length - 1;
+		if (rowsCount == 0) {return -1;}
+		long clampedY = Math.max(0, y);
+		int firstRow = 0;
+		int lastRow = rowsCount;
+		while (firstRow < lastRow) {
+			int middleRow = (firstRow + lastRow + 1) >>> 1;
+			if (offsets[middleRow] <= clampedY) {
+				firstRow = middleRow;
+			} else {
+				lastRow = middleRow - 1;
+			}
+		}
+		return Math.min(firstRow, rowsCount - 1);
+	}
+}
@@ -0,0 +1,78 @@
+package mx.gob.cofepris.cos.deds.dynamicRowsLoader;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+
+public class TileArrangementTest {
+
+
+	@Test
+	public void tilesAreWrappedIntoLines() {
+		TileArrangement tileArrangement = TileArrangement.forViewportWidth(23, 100, 80, 450);
+		assertEquals("tiles per line", 4, tileArrangement.getTilesPerLine());
+		assertEquals("lines", 6, tileArrangement.getLinesCount());
+		assertEquals("line width", 400, tileArrangement.getLineWidth());
+		assertEquals("line of the first tile", 0, tileArrangement.getLineOfTile(0));
+		assertEquals("line of the last tile", 5, tileArrangement.getLineOfTile(22));
+		assertEquals("first tile of a line", 8, tileArrangement.getFirstTileOfLine(2));
+		assertEquals("last tile of a line", 11, tileArrangement.getLastTileOfLine(2));
+		assertEquals("first tile of the last line", 20, tileArrangement.getFirstTileOfLine(5));
+		assertEquals("last tile of the last line", 22, tileArrangement.getLastTileOfLine(5));
+		assertEquals("first column", 0, tileArrangement.getTileX(8));
+		assertEquals("last column", 300, tileArrangement.getTileX(11));
+	}
+
+
+	@Test
+	public void narrowViewportHoldsOneTilePerLine() {
+		TileArrangement tileArrangement = TileArrangement.forViewportWidth(5, 100, 80, 30);
+		assertEquals("tiles per line", 1, tileArrangement.getTilesPerLine());
+		assertEquals("lines", 5, tileArrangement.getLinesCount());
+		assertEquals("tile of a line", 3, tileArrangement.getFirstTileOfLine(3));
+		assertEquals("column", 0, tileArrangement.getTileX(3));
+	}
+
+
+	@Test
+	public void resizedArrangementKeepsTheTiles() {
+		TileArrangement tileArrangement = TileArrangement.forViewportWidth(1000, 50, 60, 500);
+		TileArrangement resizedArrangement = tileArrangement.withViewportWidth(260);
+		assertEquals("tiles", 1000, resizedArrangement.getTilesCount());
+		assertEquals("tile width", 50, resizedArrangement.getTileWidth());
+		assertEquals("tile height", 60, resizedArrangement.getTileHeight());
+		assertEquals("tiles per line", 5, resizedArrangement.getTilesPerLine());
+		assertEquals("lines", 200, resizedArrangement.getLinesCount());
+		assertEquals("former tiles per line", 10, tileArrangement.getTilesPerLine());
+	}
+
+
+	@Test
+	public void noTiles() {
+		TileArrangement tileArrangement = TileArrangement.forViewportWidth(0, 50, 60, 500);
+		assertEquals("lines", 0, tileArrangement.getLinesCount());
+		assertEquals("first tile", 0, tileArrangement.getFirstTileOfLine(0));
+		assertEquals("last tile", -1, tileArrangement.getLastTileOfLine(0));
+	}
+
+
+	@Test
+	public void hugeTilesCountDoesNotOverflow() {
+		TileArrangement tileArrangement = TileArrangement.forViewportWidth(Integer.MAX_VALUE, 1, 1, 3);
+		assertEquals("lines", 715827883, tileArrangement.getLinesCount());
+		assertEquals("last tile", Integer.MAX_VALUE - 1, tileArrangement.getLastTileOfLine(715827882));
+	}
+
+
+	@Test(expected = IllegalArgumentException.class)
+	public void negativeTilesCountIsRejected() {
+		TileArrangement.forViewportWidth(-1, 50, 60, 500);
+	}
+
+
+	@Test(expected = IllegalArgumentException.class)
+	public void emptyTileIsRejected() {
+		TileArrangement.forViewportWidth(10, 0, 60, 500);
+	}
+}
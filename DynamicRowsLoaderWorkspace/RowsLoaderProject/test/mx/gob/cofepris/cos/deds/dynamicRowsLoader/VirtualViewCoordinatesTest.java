@@ -0,0 +1,126 @@
+package mx.gob.cofepris.cos.deds.dynamicRowsLoader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+
+/*
+ * The rows are far taller than the maximum physical height, except where the test says
+ * otherwise, so the view is scaled.
+ */
+public class VirtualViewCoordinatesTest {
+	private static final int MAXIMUM_PHYSICAL_HEIGHT = 1 << 20;
+	private static final int EXTENT_HEIGHT = 500;
+	private static final int ROWS_COUNT = 50000000;
+	private static final int ROW_HEIGHT = 100;
+
+
+	@Test
+	public void unscaledViewKeepsTheSameCoordinates() {
+		VirtualViewCoordinates virtualViewCoordinates = newCoordinates(1000);
+		assertFalse("scaled", virtualViewCoordinates.isScaled());
+		assertEquals("physical height", 1000 * ROW_HEIGHT, virtualViewCoordinates.getPhysicalHeight());
+		assertEquals("followed position", 4321, virtualViewCoordinates.followPhysicalY(4321, EXTENT_HEIGHT, false));
+		assertEquals("virtual position", 4321, virtualViewCoordinates.toVirtualY(4321));
+		assertEquals("anchored position", 777, virtualViewCoordinates.anchorVirtualY(777, EXTENT_HEIGHT));
+		assertEquals("physical position", 777, virtualViewCoordinates.toPhysicalY(777));
+	}
+
+
+	@Test
+	public void scaledViewIsCappedToTheMaximumPhysicalHeight() {
+		VirtualViewCoordinates virtualViewCoordinates = newCoordinates(ROWS_COUNT);
+		assertTrue("scaled", virtualViewCoordinates.isScaled());
+		assertEquals("physical height", MAXIMUM_PHYSICAL_HEIGHT, virtualViewCoordinates.getPhysicalHeight());
+	}
+
+
+	@Test
+	public void anchoredPositionMapsBackToTheVirtualPosition() {
+		VirtualViewCoordinates virtualViewCoordinates = newCoordinates(ROWS_COUNT);
+		long totalHeight = (long) ROWS_COUNT * ROW_HEIGHT;
+		for (long virtualY : new long[] {0, 10, 123456789L, totalHeight / 2, totalHeight - EXTENT_HEIGHT - 3}) {
+			int physicalY = virtualViewCoordinates.anchorVirtualY(virtualY, EXTENT_HEIGHT);
+			assertTrue("physical position " + physicalY + " out of the view", physicalY >= 0
+					&& physicalY <= MAXIMUM_PHYSICAL_HEIGHT - EXTENT_HEIGHT);
+			assertEquals("virtual position of " + virtualY, virtualY, virtualViewCoordinates.toVirtualY(physicalY));
+			assertEquals("physical position of " + virtualY, physicalY, virtualViewCoordinates.toPhysicalY(virtualY));
+		}
+		assertEquals("beyond the end", totalHeight - EXTENT_HEIGHT, virtualViewCoordinates.toVirtualY(
+				virtualViewCoordinates.anchorVirtualY(totalHeight * 2, EXTENT_HEIGHT)));
+	}
+
+
+	/*
+	 * After a small move the view is re-anchored, so the returned position may differ from the
+	 * requested one, but the virtual position moved exactly as much as the view did.
+	 */
+	@Test
+	public void smallMovesMoveTheVirtualPositionByTheSameAmount() {
+		VirtualViewCoordinates virtualViewCoordinates = newCoordinates(ROWS_COUNT);
+		long virtualY = (long) ROWS_COUNT * ROW_HEIGHT / 3;
+		int physicalY = virtualViewCoordinates.anchorVirtualY(virtualY, EXTENT_HEIGHT);
+		for (int physicalDelta : new int[] {1, 40, -7, EXTENT_HEIGHT, -2 * EXTENT_HEIGHT}) {
+			physicalY = virtualViewCoordinates.followPhysicalY(physicalY + physicalDelta, EXTENT_HEIGHT, false);
+			virtualY += physicalDelta;
+			assertEquals("after moving " + physicalDelta, virtualY, virtualViewCoordinates.getAnchoredVirtualY());
+			assertEquals("view after moving " + physicalDelta, virtualY, virtualViewCoordinates.toVirtualY(physicalY));
+		}
+	}
+
+
+	@Test
+	public void smallMovesNearTheEdgesAreOneToOne() {
+		VirtualViewCoordinates virtualViewCoordinates = newCoordinates(ROWS_COUNT);
+		assertEquals("near the top", 300, virtualViewCoordinates.followPhysicalY(300, EXTENT_HEIGHT, false));
+		assertEquals("virtual near the top", 300, virtualViewCoordinates.toVirtualY(300));
+		int maximumPhysicalY = MAXIMUM_PHYSICAL_HEIGHT - EXTENT_HEIGHT;
+		long maximumVirtualY = (long) ROWS_COUNT * ROW_HEIGHT - EXTENT_HEIGHT;
+		virtualViewCoordinates.followPhysicalY(maximumPhysicalY, EXTENT_HEIGHT, true);
+		assertEquals("at the bottom", maximumVirtualY, virtualViewCoordinates.getAnchoredVirtualY());
+		int physicalY = virtualViewCoordinates.followPhysicalY(maximumPhysicalY - 200, EXTENT_HEIGHT, false);
+		assertEquals("near the bottom", maximumPhysicalY - 200, physicalY);
+		assertEquals("virtual near the bottom", maximumVirtualY - 200, virtualViewCoordinates.toVirtualY(physicalY));
+	}
+
+
+	@Test
+	public void draggingFollowsTheScaledMapping() {
+		VirtualViewCoordinates virtualViewCoordinates = newCoordinates(ROWS_COUNT);
+		int maximumPhysicalY = MAXIMUM_PHYSICAL_HEIGHT - EXTENT_HEIGHT;
+		long maximumVirtualY = (long) ROWS_COUNT * ROW_HEIGHT - EXTENT_HEIGHT;
+		assertEquals("dragged position", maximumPhysicalY / 2,
+				virtualViewCoordinates.followPhysicalY(maximumPhysicalY / 2, EXTENT_HEIGHT, true));
+		long middleVirtualY = virtualViewCoordinates.getAnchoredVirtualY();
+		assertTrue("middle of the rows: " + middleVirtualY, Math.abs(middleVirtualY - maximumVirtualY / 2)
+				< maximumVirtualY / 1000);
+		virtualViewCoordinates.followPhysicalY(0, EXTENT_HEIGHT, true);
+		assertEquals("dragged to the top", 0, virtualViewCoordinates.getAnchoredVirtualY());
+		virtualViewCoordinates.followPhysicalY(maximumPhysicalY / 4, EXTENT_HEIGHT, false);
+		assertTrue("a long jump follows the scaled mapping",
+				virtualViewCoordinates.getAnchoredVirtualY() > maximumVirtualY / 5);
+	}
+
+
+	@Test
+	public void resetReturnsToTheTop() {
+		VirtualViewCoordinates virtualViewCoordinates = newCoordinates(ROWS_COUNT);
+		virtualViewCoordinates.anchorVirtualY(123456789L, EXTENT_HEIGHT);
+		virtualViewCoordinates.reset();
+		assertEquals("anchored position", 0, virtualViewCoordinates.getAnchoredVirtualY());
+		assertEquals("origin", 0, virtualViewCoordinates.getVirtualOrigin());
+	}
+
+
+	private static VirtualViewCoordinates newCoordinates(int rowsCount) {
+		RowGeometryIndex rowGeometryIndex = new RowGeometryIndex();
+		rowGeometryIndex.resetToEstimatedRows(rowsCount, ROW_HEIGHT);
+		VirtualViewCoordinates virtualViewCoordinates = new VirtualViewCoordinates();
+		virtualViewCoordinates.setMaximumPhysicalHeight(MAXIMUM_PHYSICAL_HEIGHT);
+		virtualViewCoordinates.setRowGeometry(rowGeometryIndex);
+		return virtualViewCoordinates;
+	}
+}